@@ -0,0 +1,282 @@
+package com.manublock.backend.config;
+
+import io.reactivex.Flowable;
+import okhttp3.OkHttpClient;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.websocket.events.Notification;
+import org.web3j.utils.Async;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Web3jService spread over several JSON-RPC endpoints.
+ * Latency and error rate are tracked per endpoint as EWMAs; reads go to the best healthy
+ * endpoint, while transaction sends and nonce lookups stay on a sticky primary so the
+ * pending nonce is always read from the node the transactions went to. Endpoints that keep
+ * failing are ejected for a growing cool-down and re-probed in the background.
+ */
+public class PooledWeb3jService implements Web3jService {
+    private static final Logger LOGGER = Logger.getLogger(PooledWeb3jService.class.getName());
+
+    // Calls that must see the primary's view of our own pending transactions
+    private static final Set<String> PRIMARY_METHODS = Set.of(
+            "eth_sendRawTransaction",
+            "eth_sendTransaction",
+            "eth_getTransactionCount");
+
+    private static final double EWMA_ALPHA = 0.2;
+    private static final int EJECT_AFTER_CONSECUTIVE_FAILURES = 3;
+    private static final double EJECT_ERROR_RATE = 0.5;
+    private static final long BASE_EJECT_MS = 30_000;
+    private static final long MAX_EJECT_MS = 300_000;
+
+    private final List<Endpoint> endpoints;
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor();
+    private volatile Endpoint primary;
+
+    public PooledWeb3jService(List<String> urls, OkHttpClient client, long probeIntervalMs) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one RPC endpoint is required");
+        }
+        this.endpoints = urls.stream()
+                .map(url -> new Endpoint(url, new HttpService(url, client)))
+                .collect(Collectors.toList());
+        this.primary = endpoints.get(0);
+
+        prober.scheduleWithFixedDelay(this::probeEjectedEndpoints, probeIntervalMs, probeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        IOException lastFailure = null;
+        for (Endpoint endpoint : candidates(PRIMARY_METHODS.contains(request.getMethod()))) {
+            long start = System.nanoTime();
+            try {
+                T response = endpoint.service.send(request, responseType);
+                endpoint.recordSuccess(System.nanoTime() - start);
+                return response;
+            } catch (IOException e) {
+                lastFailure = e;
+                recordFailure(endpoint, e);
+            }
+        }
+        throw lastFailure;
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return Async.run(() -> send(request, responseType));
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        boolean needsPrimary = batchRequest.getRequests().stream()
+                .anyMatch(request -> PRIMARY_METHODS.contains(request.getMethod()));
+
+        IOException lastFailure = null;
+        for (Endpoint endpoint : candidates(needsPrimary)) {
+            long start = System.nanoTime();
+            try {
+                BatchResponse response = endpoint.service.sendBatch(batchRequest);
+                endpoint.recordSuccess(System.nanoTime() - start);
+                return response;
+            } catch (IOException e) {
+                lastFailure = e;
+                recordFailure(endpoint, e);
+            }
+        }
+        throw lastFailure;
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return Async.run(() -> sendBatch(batchRequest));
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                             Class<T> responseType) {
+        throw new UnsupportedOperationException("Pub/Sub functionality is not available with HTTP endpoints");
+    }
+
+    @Override
+    public void close() throws IOException {
+        prober.shutdownNow();
+        for (Endpoint endpoint : endpoints) {
+            endpoint.service.close();
+        }
+    }
+
+    /**
+     * Endpoint health, for monitoring
+     */
+    public List<Map<String, Object>> getEndpointStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("url", redact(endpoint.url));
+            info.put("primary", endpoint == primary);
+            info.put("healthy", endpoint.isHealthy());
+            info.put("latencyMs", Math.round(endpoint.latencyMs));
+            info.put("errorRate", endpoint.errorRate);
+            info.put("consecutiveFailures", endpoint.consecutiveFailures);
+            status.add(info);
+        }
+        return status;
+    }
+
+    /**
+     * Order in which to try endpoints: the primary first for sends, otherwise healthy
+     * endpoints best score first; ejected endpoints last, as a last resort
+     */
+    private List<Endpoint> candidates(boolean needsPrimary) {
+        List<Endpoint> healthy = new ArrayList<>();
+        List<Endpoint> ejected = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            (endpoint.isHealthy() ? healthy : ejected).add(endpoint);
+        }
+
+        List<Endpoint> ordered = new ArrayList<>();
+        if (needsPrimary) {
+            Endpoint current = currentPrimary();
+            ordered.add(current);
+            healthy.remove(current);
+            ejected.remove(current);
+        }
+        healthy.sort(Comparator.comparingDouble(Endpoint::score));
+        ejected.sort(Comparator.comparingLong(endpoint -> endpoint.ejectedUntil));
+        ordered.addAll(healthy);
+        ordered.addAll(ejected);
+        return ordered;
+    }
+
+    /**
+     * The primary only moves when it is ejected, and then to the next healthy endpoint
+     * in configured order; it does not move back when the old one recovers
+     */
+    private Endpoint currentPrimary() {
+        Endpoint current = primary;
+        if (current.isHealthy()) {
+            return current;
+        }
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isHealthy()) {
+                LOGGER.warning("Primary RPC endpoint " + redact(current.url) + " ejected, sending transactions via " +
+                        redact(endpoint.url));
+                primary = endpoint;
+                return endpoint;
+            }
+        }
+        return current;
+    }
+
+    private void recordFailure(Endpoint endpoint, IOException e) {
+        if (endpoint.recordFailure()) {
+            LOGGER.warning("Ejecting RPC endpoint " + redact(endpoint.url) + " for " +
+                    endpoint.ejectMs + "ms after error: " + e.getMessage());
+        }
+    }
+
+    private void probeEjectedEndpoints() {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isHealthy() || System.currentTimeMillis() < endpoint.ejectedUntil) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                new Request<>("eth_blockNumber", List.of(), endpoint.service, EthBlockNumber.class).send();
+                endpoint.reinstate(System.nanoTime() - start);
+                LOGGER.info("RPC endpoint " + redact(endpoint.url) + " is healthy again");
+            } catch (Exception e) {
+                endpoint.recordFailure();
+            }
+        }
+    }
+
+    /**
+     * Provider URLs usually carry the API key in the path
+     */
+    private static String redact(String url) {
+        int lastSlash = url.lastIndexOf('/');
+        return lastSlash > "https://".length() && lastSlash < url.length() - 1
+                ? url.substring(0, lastSlash + 1) + "***"
+                : url;
+    }
+
+    private static class Endpoint {
+        private final String url;
+        private final HttpService service;
+        private volatile double latencyMs = 100;
+        private volatile double errorRate;
+        private volatile int consecutiveFailures;
+        private volatile long ejectedUntil;
+        private volatile long ejectMs = BASE_EJECT_MS;
+        private volatile boolean ejected;
+
+        Endpoint(String url, HttpService service) {
+            this.url = url;
+            this.service = service;
+        }
+
+        boolean isHealthy() {
+            return !ejected;
+        }
+
+        double score() {
+            return latencyMs * (1 + 4 * errorRate);
+        }
+
+        synchronized void recordSuccess(long elapsedNanos) {
+            latencyMs = (1 - EWMA_ALPHA) * latencyMs + EWMA_ALPHA * (elapsedNanos / 1_000_000.0);
+            errorRate = (1 - EWMA_ALPHA) * errorRate;
+            consecutiveFailures = 0;
+        }
+
+        /**
+         * @return true if this failure ejected the endpoint
+         */
+        synchronized boolean recordFailure() {
+            errorRate = (1 - EWMA_ALPHA) * errorRate + EWMA_ALPHA;
+            consecutiveFailures++;
+
+            if (ejected) {
+                // Failed a probe: stay out for longer
+                ejectMs = Math.min(MAX_EJECT_MS, ejectMs * 2);
+                ejectedUntil = System.currentTimeMillis() + ejectMs;
+                return false;
+            }
+            if (consecutiveFailures >= EJECT_AFTER_CONSECUTIVE_FAILURES || errorRate > EJECT_ERROR_RATE) {
+                ejected = true;
+                ejectedUntil = System.currentTimeMillis() + ejectMs;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void reinstate(long elapsedNanos) {
+            ejected = false;
+            ejectMs = BASE_EJECT_MS;
+            errorRate = EJECT_ERROR_RATE / 2;
+            consecutiveFailures = 0;
+            latencyMs = elapsedNanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.manublock.backend.config;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Token bucket in front of every JSON-RPC request the Web3j HttpService sends.
+ * Calls are shaped to the plan's requests-per-second budget before they leave, so the
+ * provider's 429s become rare instead of being the throttle. Each call in a batch costs
+ * one token, transaction sends go ahead of waiting reads, and a 429 pauses all traffic
+ * for the provider's Retry-After before the request is retried here.
+ */
+@Component
+public class RpcRateLimitInterceptor implements Interceptor {
+    private static final Logger LOGGER = Logger.getLogger(RpcRateLimitInterceptor.class.getName());
+
+    private static final long DEFAULT_RETRY_AFTER_MS = 1000;
+    private static final long MAX_RETRY_AFTER_MS = 60_000;
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final int maxRateLimitRetries;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long pausedUntilNanos;
+    private int waitingSends;
+
+    public RpcRateLimitInterceptor(
+            @Value("${blockchain.rpc.requests-per-second:10}") double permitsPerSecond,
+            @Value("${blockchain.rpc.burst:20}") double burst,
+            @Value("${blockchain.rpc.max-rate-limit-retries:5}") int maxRateLimitRetries) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxRateLimitRetries = maxRateLimitRetries;
+        this.tokens = burst;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String body = readBody(request);
+        int cost = Math.max(1, countOccurrences(body, "\"method\""));
+        boolean isSend = body.contains("eth_sendRawTransaction");
+
+        for (int attempt = 0; ; attempt++) {
+            acquire(cost, isSend);
+
+            Response response = chain.proceed(request);
+            if (response.code() != 429 || attempt >= maxRateLimitRetries) {
+                return response;
+            }
+
+            long delayMs = retryAfterMillis(response.header("Retry-After"), attempt);
+            response.close();
+            LOGGER.warning("RPC provider returned 429, pausing all calls for " + delayMs + "ms (attempt " +
+                    (attempt + 1) + " of " + maxRateLimitRetries + ")");
+            pauseFor(delayMs);
+        }
+    }
+
+    /**
+     * Blocks until the bucket holds enough tokens for the call. Reads also wait
+     * while any transaction send is waiting, so sends never queue behind a read burst.
+     */
+    private void acquire(int cost, boolean isSend) throws IOException {
+        double needed = Math.min(cost, burst);
+        lock.lock();
+        try {
+            if (isSend) {
+                waitingSends++;
+            }
+            while (true) {
+                refill();
+                long now = System.nanoTime();
+
+                long waitNanos;
+                if (pausedUntilNanos - now > 0) {
+                    waitNanos = pausedUntilNanos - now;
+                } else if (!isSend && waitingSends > 0) {
+                    waitNanos = nanosUntil(needed + 1);
+                } else if (tokens >= needed) {
+                    // Batches larger than the burst run the bucket into debt that later calls repay
+                    tokens -= cost;
+                    return;
+                } else {
+                    waitNanos = nanosUntil(needed);
+                }
+                stateChanged.awaitNanos(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for RPC rate limit");
+        } finally {
+            if (isSend) {
+                waitingSends--;
+            }
+            stateChanged.signalAll();
+            lock.unlock();
+        }
+    }
+
+    private void pauseFor(long delayMs) {
+        lock.lock();
+        try {
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            if (until - pausedUntilNanos > 0) {
+                pausedUntilNanos = until;
+            }
+            // Whatever was saved up is no longer trustworthy once the provider has refused us
+            tokens = Math.min(tokens, 0);
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        tokens = Math.min(burst, tokens + elapsedSeconds * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    private long nanosUntil(double neededTokens) {
+        double missing = neededTokens - tokens;
+        return missing <= 0 ? 0 : (long) (missing / permitsPerSecond * 1_000_000_000L);
+    }
+
+    private static long retryAfterMillis(String retryAfter, int attempt) {
+        if (retryAfter != null) {
+            try {
+                return Math.min(MAX_RETRY_AFTER_MS, (long) (Double.parseDouble(retryAfter.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                // HTTP-date form, fall back to exponential backoff
+            }
+        }
+        return Math.min(MAX_RETRY_AFTER_MS, DEFAULT_RETRY_AFTER_MS << attempt);
+    }
+
+    private static String readBody(Request request) throws IOException {
+        if (request.body() == null) {
+            return "";
+        }
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        return buffer.readUtf8();
+    }
+
+    private static int countOccurrences(String text, String token) {
+        int count = 0;
+        for (int index = text.indexOf(token); index >= 0; index = text.indexOf(token, index + token.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -1,27 +1,34 @@
 package com.manublock.backend.config;
 
+import com.manublock.backend.services.TransactionReceiptWatcher;
 import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.FastRawTransactionManager;
-import org.web3j.tx.TransactionManager;
 import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.tx.gas.StaticGasProvider;
-import org.web3j.tx.response.PollingTransactionReceiptProcessor;
 import org.web3j.tx.response.TransactionReceiptProcessor;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Configuration
 public class Web3jConfig {
     @Value("${web3j.client-address}")
     private String rpcUrl;
 
+    // Optional comma separated endpoint pool; the first entry is the primary for transaction sends
+    @Value("${web3j.client-addresses:}")
+    private List<String> rpcUrls;
+
+    @Value("${web3j.endpoint-probe-interval-ms:15000}")
+    private long endpointProbeIntervalMs;
+
     @Value("${blockchain.wallet.private-key}")
     private String adminPrivateKey;
 
@@ -32,16 +39,34 @@ public class Web3jConfig {
     private static final BigInteger DEFAULT_GAS_PRICE = BigInteger.valueOf(50_000_000_000L); // 50 Gwei
     private static final BigInteger DEFAULT_GAS_LIMIT = BigInteger.valueOf(700_000);
 
+    // How long a blocking contract send() waits for the receipt watcher
+    private static final long RECEIPT_TIMEOUT_MS = 180_000;
+
     @Bean
-    public Web3j web3j() {
-        // Create HTTP client with longer timeouts for better reliability
+    public PooledWeb3jService web3jService(RpcRateLimitInterceptor rateLimitInterceptor) {
+        // Create HTTP client with longer timeouts for better reliability;
+        // every JSON-RPC call is shaped by the shared rate limiter
         OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(rateLimitInterceptor)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
                 .build();
 
-        return Web3j.build(new HttpService(rpcUrl, client));
+        List<String> urls = rpcUrls.stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .collect(Collectors.toList());
+        if (urls.isEmpty()) {
+            urls = List.of(rpcUrl);
+        }
+
+        return new PooledWeb3jService(urls, client, endpointProbeIntervalMs);
+    }
+
+    @Bean
+    public Web3j web3j(PooledWeb3jService web3jService) {
+        return Web3j.build(web3jService);
     }
 
     @Bean
@@ -57,9 +82,10 @@ public class Web3jConfig {
     }
 
     @Bean
-    public TransactionManager web3jTransactionManager(Web3j web3j, Credentials credentials) {
-        TransactionReceiptProcessor receiptProcessor =
-                new PollingTransactionReceiptProcessor(web3j, 1000, 60);
+    public FastRawTransactionManager web3jTransactionManager(Web3j web3j, Credentials credentials,
+                                                             TransactionReceiptWatcher receiptWatcher) {
+        // Receipts come from the shared block-driven watcher instead of a polling loop per transaction
+        TransactionReceiptProcessor receiptProcessor = receiptWatcher.asReceiptProcessor(RECEIPT_TIMEOUT_MS);
 
         // Use the explicit chain ID for Sepolia
         return new FastRawTransactionManager(web3j, credentials, EXPECTED_CHAIN_ID, receiptProcessor);
@@ -1,17 +1,29 @@
 package com.manublock.backend.controllers;
 
+import com.manublock.backend.config.PooledWeb3jService;
 import com.manublock.backend.models.BlockchainTransaction;
 import com.manublock.backend.models.Items;
 import com.manublock.backend.repositories.BlockchainTransactionRepository;
 import com.manublock.backend.repositories.ItemRepository;
+import com.manublock.backend.services.BlockchainEventListenerService;
+import com.manublock.backend.services.BlockchainOutboxService;
+import com.manublock.backend.services.BlockchainTransactionArchiveService;
+import com.manublock.backend.services.BlockchainTransactionQueryService;
+import com.manublock.backend.services.ContractEventBackfillService;
+import com.manublock.backend.services.TransactionItemIndexService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -28,6 +40,29 @@ public class BlockchainTraceabilityController {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private BlockchainEventListenerService eventListenerService;
+
+    @Autowired
+    private ContractEventBackfillService backfillService;
+
+    @Autowired
+    private BlockchainOutboxService outboxService;
+
+    @Autowired
+    private TransactionItemIndexService transactionItemIndex;
+
+    @Autowired
+    private PooledWeb3jService web3jService;
+
+    @Autowired
+    private BlockchainTransactionQueryService transactionQueryService;
+
+    @Autowired
+    private BlockchainTransactionArchiveService archiveService;
+
+    private static final int MAX_TRANSACTION_PAGE_SIZE = 1000;
+
     /**
      * Get transaction timeline for a specific item
      */
@@ -43,21 +78,14 @@ public class BlockchainTraceabilityController {
 
             Items item = itemOpt.get();
 
-            // Find all transactions related to this item
-            List<BlockchainTransaction> allTransactions = transactionRepository.findAll();
-
-            // Filter for transactions involving this item
-            List<BlockchainTransaction> itemTransactions = allTransactions.stream()
-                    .filter(tx -> isTransactionRelatedToItem(tx, itemId))
-                    .collect(Collectors.toList());
-
-            // Sort by timestamp
-            itemTransactions.sort(Comparator.comparing(BlockchainTransaction::getCreatedAt));
+            // Transactions linked to this item through transaction_items, oldest first;
+            // archived rows are all older than the live ones
+            List<BlockchainTransaction> itemTransactions =
+                    new ArrayList<>(archiveService.findArchivedByLinkedItemId(itemId));
+            itemTransactions.addAll(transactionRepository.findByLinkedItemId(itemId));
 
             // Convert to response DTOs with enhanced information
-            List<Map<String, Object>> timeline = itemTransactions.stream()
-                    .map(tx -> enrichTransactionData(tx))
-                    .collect(Collectors.toList());
+            List<Map<String, Object>> timeline = enrichTransactions(itemTransactions);
 
             // Add parent information if available
             if (item.getParentItemIds() != null && !item.getParentItemIds().isEmpty()) {
@@ -96,39 +124,21 @@ public class BlockchainTraceabilityController {
     }
 
     /**
-     * Check if a transaction is related to a specific item
+     * Enrich transactions with human-readable information, loading processItem source links in one query
      */
-    private boolean isTransactionRelatedToItem(BlockchainTransaction tx, Long itemId) {
-        if (tx.getParameters() != null) {
-            String params = tx.getParameters();
-            String itemIdStr = itemId.toString();
-
-            // Different patterns based on function type
-            if (tx.getFunction().equals("createItem")) {
-                // For createItem, the first parameter is typically the itemId
-                return params.startsWith(itemIdStr + ",");
-            } else if (tx.getFunction().equals("transferItem") || tx.getFunction().equals("updateItemStatus")) {
-                // For these functions, the first parameter is also usually the itemId
-                return params.startsWith(itemIdStr + ",");
-            } else if (tx.getFunction().equals("processItem")) {
-                // For processItem, check both source items and new item
-                return params.contains("[" + itemIdStr + ",") ||
-                        params.contains("," + itemIdStr + ",") ||
-                        params.contains("," + itemIdStr + "]");
-            }
+    private List<Map<String, Object>> enrichTransactions(List<BlockchainTransaction> transactions) {
+        Map<Long, List<Long>> sourceItemIds = transactionItemIndex.findSourceItemIds(
+                transactions.stream().map(BlockchainTransaction::getId).collect(Collectors.toList()));
 
-            // Generic check for itemId in parameters
-            return params.contains("itemId=" + itemIdStr) ||
-                    params.contains("\"itemId\":" + itemIdStr);
-        }
-
-        return false;
+        return transactions.stream()
+                .map(tx -> enrichTransactionData(tx, sourceItemIds.getOrDefault(tx.getId(), List.of())))
+                .collect(Collectors.toList());
     }
 
     /**
      * Enrich transaction data with human-readable information
      */
-    private Map<String, Object> enrichTransactionData(BlockchainTransaction tx) {
+    private Map<String, Object> enrichTransactionData(BlockchainTransaction tx, List<Long> sourceItemIds) {
         Map<String, Object> enriched = new HashMap<>();
 
         // Basic transaction info
@@ -139,15 +149,14 @@ public class BlockchainTraceabilityController {
         enriched.put("createdAt", tx.getCreatedAt());
         enriched.put("confirmedAt", tx.getConfirmedAt());
 
-        // Parse and enhance parameters
         if (tx.getParameters() != null) {
             enriched.put("rawParameters", tx.getParameters());
 
             // Add human-readable description based on function type
-            enriched.put("description", generateHumanReadableDescription(tx));
+            enriched.put("description", generateHumanReadableDescription(tx, sourceItemIds));
 
-            // Extract related entities
-            Map<String, Object> relatedEntities = extractRelatedEntities(tx);
+            // Related entities come from the typed argument columns
+            Map<String, Object> relatedEntities = extractRelatedEntities(tx, sourceItemIds);
             if (!relatedEntities.isEmpty()) {
                 enriched.put("relatedEntities", relatedEntities);
             }
@@ -159,81 +168,69 @@ public class BlockchainTraceabilityController {
     /**
      * Generate a human-readable description of the transaction
      */
-    private String generateHumanReadableDescription(BlockchainTransaction tx) {
+    private String generateHumanReadableDescription(BlockchainTransaction tx, List<Long> sourceItemIds) {
         String function = tx.getFunction();
-        String params = tx.getParameters();
-
-        if (params == null) {
-            return "Unknown transaction: " + function;
-        }
-
-        String[] paramParts = params.split(",");
 
         switch (function) {
             case "createSupplyChain":
-                if (paramParts.length >= 1) {
-                    return "Created supply chain with ID: " + paramParts[0];
+                if (tx.getSupplyChainId() != null) {
+                    return "Created supply chain with ID: " + tx.getSupplyChainId();
                 }
                 break;
 
             case "authorizeParticipant":
-                if (paramParts.length >= 2) {
-                    return "Authorized user " + paramParts[1] + " on supply chain " + paramParts[0];
+                if (tx.getSupplyChainId() != null && tx.getUserId() != null) {
+                    return "Authorized user " + tx.getUserId() + " on supply chain " + tx.getSupplyChainId();
                 }
                 break;
 
             case "createItem":
-                if (paramParts.length >= 5) {
-                    return "Created " + paramParts[3] + " item (ID: " + paramParts[0] +
-                            ") with quantity " + paramParts[2] + " by user " + paramParts[4];
+                if (tx.getItemId() != null) {
+                    return "Created " + tx.getActionType() + " item (ID: " + tx.getItemId() +
+                            ") with quantity " + tx.getQuantity() + " by user " + tx.getUserId();
                 }
                 break;
 
             case "transferItem":
-                if (paramParts.length >= 5) {
-                    // Extract action type from parameter 4
-                    String actionType = paramParts[3];
+                if (tx.getItemId() != null) {
+                    String actionType = tx.getActionType() != null ? tx.getActionType() : "";
 
                     if (actionType.contains("recycling-pickup")) {
-                        return "Item " + paramParts[0] + " collected for recycling by distributor (user " +
-                                paramParts[1] + ") from customer " + paramParts[4];
+                        return "Item " + tx.getItemId() + " collected for recycling by distributor (user " +
+                                tx.getUserId() + ") from customer " + tx.getFromUserId();
                     } else if (actionType.contains("recycling-delivery")) {
-                        return "Item " + paramParts[0] + " delivered to manufacturer (user " +
-                                paramParts[1] + ") for recycling processing";
+                        return "Item " + tx.getItemId() + " delivered to manufacturer (user " +
+                                tx.getUserId() + ") for recycling processing";
                     } else {
-                        return "Transferred item " + paramParts[0] + " to user " +
-                                paramParts[1] + " (quantity: " + paramParts[2] + ") from user " + paramParts[4];
+                        return "Transferred item " + tx.getItemId() + " to user " +
+                                tx.getUserId() + " (quantity: " + tx.getQuantity() + ") from user " + tx.getFromUserId();
                     }
                 }
                 break;
 
             case "processItem":
-                if (paramParts.length >= 5) {
-                    String sourceIds = paramParts[0].replace("[", "").replace("]", "");
-                    String outputItemId = paramParts[1];
-                    String outputType = paramParts[4];
+                if (tx.getItemId() != null) {
+                    String sourceIds = sourceItemIds.stream().map(String::valueOf).collect(Collectors.joining(","));
                     return "Processed source items [" + sourceIds + "] into new " +
-                            outputType + " item with ID: " + outputItemId;
+                            tx.getActionType() + " item with ID: " + tx.getItemId();
                 }
                 break;
 
             case "updateItemStatus":
-                if (paramParts.length >= 3) {
-                    int statusCode = Integer.parseInt(paramParts[1]);
-
+                if (tx.getItemId() != null && tx.getStatusCode() != null) {
                     // Check if this is actually a recycling-related status update
-                    if (statusCode == 4) {
+                    if (tx.getStatusCode() == 4) {
                         // Status code 4 is being used for recycling in this context
-                        return "Marked item " + paramParts[0] + " for recycling";
+                        return "Marked item " + tx.getItemId() + " for recycling";
                     } else {
-                        return "Updated status of item " + paramParts[0] + " to " +
-                                getStatusName(statusCode);
+                        return "Updated status of item " + tx.getItemId() + " to " +
+                                getStatusName(tx.getStatusCode());
                     }
                 }
                 break;
         }
 
-        return "Transaction: " + function + " with parameters: " + params;
+        return "Transaction: " + function + " with parameters: " + tx.getParameters();
     }
 
     /**
@@ -253,103 +250,164 @@ public class BlockchainTraceabilityController {
     }
 
     /**
-     * Extract related entities from transaction parameters
+     * Related entities of a transaction, from its typed arguments
      */
-    private Map<String, Object> extractRelatedEntities(BlockchainTransaction tx) {
+    private Map<String, Object> extractRelatedEntities(BlockchainTransaction tx, List<Long> sourceItemIds) {
         Map<String, Object> entities = new HashMap<>();
-        String function = tx.getFunction();
-        String params = tx.getParameters();
-
-        if (params == null) {
-            return entities;
-        }
-
-        String[] paramParts = params.split(",");
 
         // Extract based on function type
-        switch (function) {
+        switch (tx.getFunction()) {
             case "createSupplyChain":
-                if (paramParts.length >= 1) {
-                    entities.put("supplyChainId", Long.parseLong(paramParts[0]));
-                }
+                putIfPresent(entities, "supplyChainId", tx.getSupplyChainId());
                 break;
 
             case "authorizeParticipant":
-                if (paramParts.length >= 2) {
-                    entities.put("supplyChainId", Long.parseLong(paramParts[0]));
-                    entities.put("userId", Long.parseLong(paramParts[1]));
-                }
+                putIfPresent(entities, "supplyChainId", tx.getSupplyChainId());
+                putIfPresent(entities, "userId", tx.getUserId());
                 break;
 
             case "createItem":
-                if (paramParts.length >= 5) {
-                    entities.put("itemId", Long.parseLong(paramParts[0]));
-                    entities.put("supplyChainId", Long.parseLong(paramParts[1]));
-                    entities.put("itemType", paramParts[3]);
-                    entities.put("creatorId", Long.parseLong(paramParts[4]));
-                }
+                putIfPresent(entities, "itemId", tx.getItemId());
+                putIfPresent(entities, "supplyChainId", tx.getSupplyChainId());
+                putIfPresent(entities, "itemType", tx.getActionType());
+                putIfPresent(entities, "creatorId", tx.getUserId());
                 break;
 
             case "transferItem":
-                if (paramParts.length >= 5) {
-                    entities.put("itemId", Long.parseLong(paramParts[0]));
-                    entities.put("toUserId", Long.parseLong(paramParts[1]));
-                    entities.put("quantity", Long.parseLong(paramParts[2]));
-                    entities.put("actionType", paramParts[3]);
-                    entities.put("fromUserId", Long.parseLong(paramParts[4]));
-                }
+                putIfPresent(entities, "itemId", tx.getItemId());
+                putIfPresent(entities, "toUserId", tx.getUserId());
+                putIfPresent(entities, "quantity", tx.getQuantity());
+                putIfPresent(entities, "actionType", tx.getActionType());
+                putIfPresent(entities, "fromUserId", tx.getFromUserId());
                 break;
 
             case "processItem":
-                if (paramParts.length >= 6) {
-                    // Parse source item IDs - handle array format [id1,id2,...]
-                    String sourceIdsStr = paramParts[0];
-                    List<Long> sourceIds = new ArrayList<>();
-
-                    // Simple array parsing
-                    sourceIdsStr = sourceIdsStr.replace("[", "").replace("]", "");
-                    for (String idStr : sourceIdsStr.split(",")) {
-                        if (!idStr.trim().isEmpty()) {
-                            sourceIds.add(Long.parseLong(idStr.trim()));
-                        }
-                    }
-
-                    entities.put("sourceItemIds", sourceIds);
-                    entities.put("newItemId", Long.parseLong(paramParts[1]));
-                    entities.put("newItemType", paramParts[4]);
-                    entities.put("processorId", Long.parseLong(paramParts[5]));
+                if (tx.getItemId() != null) {
+                    entities.put("sourceItemIds", sourceItemIds);
                 }
+                putIfPresent(entities, "newItemId", tx.getItemId());
+                putIfPresent(entities, "newItemType", tx.getActionType());
+                putIfPresent(entities, "processorId", tx.getUserId());
                 break;
 
             case "updateItemStatus":
-                if (paramParts.length >= 3) {
-                    entities.put("itemId", Long.parseLong(paramParts[0]));
-                    entities.put("status", Integer.parseInt(paramParts[1]));
-                    entities.put("ownerId", Long.parseLong(paramParts[2]));
-                }
+                putIfPresent(entities, "itemId", tx.getItemId());
+                putIfPresent(entities, "status", tx.getStatusCode());
+                putIfPresent(entities, "ownerId", tx.getUserId());
                 break;
         }
 
         return entities;
     }
 
+    private static void putIfPresent(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
     /**
-     * Get all blockchain transactions without any filtering
+     * Page through all blockchain transactions, oldest first, optionally filtered by status,
+     * function and creation time. Pass the returned nextCursor to get the following page.
+     * With format=ndjson every matching transaction is streamed instead, one JSON object per line.
+     * Confirmed transactions older than the archive retention window are moved out of the live
+     * table and are only listed and exported with includeArchived=true.
      */
     @GetMapping("/transactions/all")
-    public ResponseEntity<?> getAllTransactions() {
+    public ResponseEntity<?> getAllTransactions(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String function,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
         try {
-            List<BlockchainTransaction> transactions = transactionRepository.findAll();
+            BlockchainTransactionQueryService.TransactionFilter filter =
+                    new BlockchainTransactionQueryService.TransactionFilter(status, function, from, to, includeArchived);
+
+            if ("ndjson".equalsIgnoreCase(format)) {
+                StreamingResponseBody body = out -> transactionQueryService.exportNdjson(filter, out);
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                        .body(body);
+            }
 
-            // Convert to response DTOs with enhanced information
-            List<Map<String, Object>> responseDtos = transactions.stream()
-                    .map(tx -> enrichTransactionData(tx))
-                    .collect(Collectors.toList());
+            int pageSize = Math.max(1, Math.min(limit, MAX_TRANSACTION_PAGE_SIZE));
+            BlockchainTransactionQueryService.TransactionPage page =
+                    transactionQueryService.findPage(filter, cursor, pageSize);
 
-            return ResponseEntity.ok(responseDtos);
+            // Convert to response DTOs with enhanced information
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("transactions", enrichTransactions(page.getTransactions()));
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.getNextCursor() != null);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error retrieving blockchain transactions: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Pending transaction backlog size and age, as seen by the receipt reconciler,
+     * and the depth of the outbox still waiting to be sent
+     */
+    @GetMapping("/transactions/backlog")
+    public ResponseEntity<?> getPendingBacklog() {
+        try {
+            Map<String, Object> backlog = new LinkedHashMap<>(eventListenerService.getReconcilerStatus());
+            backlog.put("outbox", outboxService.getOutboxStatus());
+            return ResponseEntity.ok(backlog);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error retrieving transaction backlog: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Start rebuilding items from the contract's event history, resuming from the last checkpoint
+     */
+    @PostMapping("/events/backfill")
+    public ResponseEntity<?> startEventBackfill(@RequestParam(defaultValue = "false") boolean restart) {
+        try {
+            if (!backfillService.startBackfill(restart)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "An event backfill is already running"));
+            }
+            return ResponseEntity.accepted().body(backfillService.getBackfillStatus());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error starting event backfill: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Progress of the event backfill
+     */
+    @GetMapping("/events/backfill")
+    public ResponseEntity<?> getEventBackfillStatus() {
+        try {
+            return ResponseEntity.ok(backfillService.getBackfillStatus());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error retrieving event backfill status: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Health, latency and error rate of each RPC endpoint in the pool
+     */
+    @GetMapping("/rpc/endpoints")
+    public ResponseEntity<?> getRpcEndpoints() {
+        try {
+            return ResponseEntity.ok(web3jService.getEndpointStatus());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error retrieving RPC endpoint status: " + e.getMessage()));
+        }
+    }
+}
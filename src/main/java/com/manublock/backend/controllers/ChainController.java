@@ -1,35 +1,44 @@
 package com.manublock.backend.controllers;
 
 import com.manublock.backend.dto.ChainResponseDTO;
+import com.manublock.backend.dto.ChainSummaryDTO;
 import com.manublock.backend.dto.EdgeResponseDTO;
 import com.manublock.backend.dto.NodeResponseDTO;
 import com.manublock.backend.models.Chains;
 import com.manublock.backend.services.BlockchainService;
 import com.manublock.backend.services.ChainService;
+import com.manublock.backend.services.ResourceETagService;
 import com.manublock.backend.services.SupplyChainFinalizationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/supply-chains")
 public class ChainController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final ChainService chainService;
     private final BlockchainService blockchainService;
     private final SupplyChainFinalizationService finalizationService;
+    private final ResourceETagService eTagService;
 
     @Autowired
     public ChainController(ChainService chainService, BlockchainService blockchainService,
-                           SupplyChainFinalizationService finalizationService) {
+                           SupplyChainFinalizationService finalizationService, ResourceETagService eTagService) {
         this.chainService = chainService;
         this.blockchainService = blockchainService;
         this.finalizationService = finalizationService;
+        this.eTagService = eTagService;
     }
 
     @PostMapping("/create")
@@ -71,13 +80,31 @@ public class ChainController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ChainResponseDTO> getSupplyChainById(@PathVariable Long id) {
-        return ResponseEntity.ok(chainService.getSupplyChain(id));
+    public ResponseEntity<ChainResponseDTO> getSupplyChainById(@PathVariable Long id, WebRequest request) {
+        // Checked before the graph is loaded, so an unchanged chain costs one scalar query
+        String eTag = eTagService.chainETag(id);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        ChainResponseDTO chain = chainService.getSupplyChain(id);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(chain);
     }
 
     @GetMapping
-    public List<ChainResponseDTO> getAllSupplyChains() {
-        return chainService.getAllSupplyChains();
+    public ResponseEntity<?> getAllSupplyChains(
+            @RequestParam(required = false) String view,
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "0") int limit) {
+        if (limit < 0 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "limit must be between 0 and " + MAX_PAGE_SIZE + " (0 = all)"));
+        }
+        // One extra row tells whether another page follows
+        int fetch = limit > 0 ? limit + 1 : 0;
+        if ("summary".equals(view)) {
+            return page(chainService.getSupplyChainSummaries(afterId, fetch), limit, ChainSummaryDTO::getId);
+        }
+        return page(chainService.getSupplyChainPage(afterId, fetch), limit, ChainResponseDTO::getId);
     }
 
     @DeleteMapping("/{id}")
@@ -98,10 +125,23 @@ public class ChainController {
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getSupplyChainsByUserId(@PathVariable Long userId) {
+    public ResponseEntity<?> getSupplyChainsByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String view,
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "0") int limit) {
+        if (limit < 0 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "limit must be between 0 and " + MAX_PAGE_SIZE + " (0 = all)"));
+        }
         try {
-            List<ChainResponseDTO> supplyChains = chainService.findSupplyChainsByUserId(userId);
-            return ResponseEntity.ok(supplyChains);
+            int fetch = limit > 0 ? limit + 1 : 0;
+            if ("summary".equals(view)) {
+                return page(chainService.findSupplyChainSummariesByUserId(userId, afterId, fetch),
+                        limit, ChainSummaryDTO::getId);
+            }
+            return page(chainService.findSupplyChainPageByUserId(userId, afterId, fetch),
+                    limit, ChainResponseDTO::getId);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to fetch supply chains for user: " + e.getMessage()));
@@ -133,7 +173,8 @@ public class ChainController {
             }
 
             // Finalize supply chain
-            Chains finalizedChain = finalizationService.finalizeSupplyChain(id);
+            SupplyChainFinalizationService.FinalizationResult result = finalizationService.finalizeSupplyChain(id);
+            Chains finalizedChain = result.getChain();
 
             // Return the complete chain response with nodes and edges
             ChainResponseDTO response = new ChainResponseDTO(
@@ -153,6 +194,7 @@ public class ChainController {
                     finalizedChain.getBlockchainTxHash(),
                     finalizedChain.getBlockchainId() // Include blockchain ID in the response
             );
+            response.setParticipantAuthorizations(result.getParticipants());
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -181,4 +223,18 @@ public class ChainController {
                     .body(Map.of("error", "Failed to get assigned users: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Trims a page fetched with one extra row and, if that row existed, sends the id to continue
+     * after in the X-Next-After-Id header. Without a limit the whole list is returned as before.
+     */
+    private static <T> ResponseEntity<List<T>> page(List<T> rows, int limit, Function<T, Long> idOf) {
+        if (limit == 0 || rows.size() <= limit) {
+            return ResponseEntity.ok(rows);
+        }
+        List<T> page = rows.subList(0, limit);
+        return ResponseEntity.ok()
+                .header("X-Next-After-Id", String.valueOf(idOf.apply(page.get(limit - 1))))
+                .body(page);
+    }
+}
@@ -4,12 +4,17 @@ import com.manublock.backend.dto.OrderResponseDTO;
 import com.manublock.backend.dto.ProductDTO;
 import com.manublock.backend.models.Order;
 import com.manublock.backend.models.Product;
+import com.manublock.backend.security.JwtPrincipal;
 import com.manublock.backend.services.CustomerService;
+import com.manublock.backend.services.ResourceETagService;
 import com.manublock.backend.utils.DTOConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.Date;
 import java.util.List;
@@ -21,14 +26,17 @@ import java.util.stream.Collectors;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final ResourceETagService eTagService;
 
     @Autowired
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, ResourceETagService eTagService) {
         this.customerService = customerService;
+        this.eTagService = eTagService;
     }
 
     @PostMapping("/orders")
-    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> payload, @RequestHeader(value = "X-Customer-Id", required = false) Long headerCustomerId) {
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> payload, @RequestHeader(value = "X-Customer-Id", required = false) Long headerCustomerId,
+                                         @AuthenticationPrincipal JwtPrincipal principal) {
         try {
             // Try to get customerId from the header first
             Long customerId = headerCustomerId;
@@ -38,6 +46,11 @@ public class CustomerController {
                 customerId = Long.valueOf(payload.get("customerId").toString());
             }
 
+            // Otherwise the caller's own id from the token
+            if (customerId == null && principal != null) {
+                customerId = principal.getId();
+            }
+
             // If still null, throw an exception
             if (customerId == null) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -106,8 +119,13 @@ public class CustomerController {
     }
 
     @GetMapping("/orders/{customerId}")
-    public ResponseEntity<?> getOrdersByCustomer(@PathVariable Long customerId) {
+    public ResponseEntity<?> getOrdersByCustomer(@PathVariable Long customerId, WebRequest request) {
         try {
+            String eTag = eTagService.ordersByCustomerETag(customerId);
+            if (request.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
             System.out.println("Controller: Getting orders for customer ID: " + customerId);
             List<Order> orders = customerService.getOrdersByCustomer(customerId);
             System.out.println("Controller: Found " + orders.size() + " orders");
@@ -115,7 +133,7 @@ public class CustomerController {
             // Convert to DTOs using the enhanced converter
             List<OrderResponseDTO> orderDTOs = DTOConverter.convertToOrderDTOList(orders);
 
-            return ResponseEntity.ok(orderDTOs);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(orderDTOs);
         } catch (Exception e) {
             System.err.println("Controller Exception: " + e.getMessage());
             e.printStackTrace();
@@ -125,12 +143,17 @@ public class CustomerController {
     }
 
     @GetMapping("/orders/number/{orderNumber}")
-    public ResponseEntity<?> getOrderByNumber(@PathVariable String orderNumber) {
+    public ResponseEntity<?> getOrderByNumber(@PathVariable String orderNumber, WebRequest request) {
         try {
+            String eTag = eTagService.orderETag(orderNumber);
+            if (eTag != null && request.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
             Order order = customerService.getOrderByNumber(orderNumber);
             // Convert to DTO before returning
             OrderResponseDTO orderDTO = DTOConverter.convertToOrderDTO(order);
-            return ResponseEntity.ok(orderDTO);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(orderDTO);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error retrieving order: " + e.getMessage());
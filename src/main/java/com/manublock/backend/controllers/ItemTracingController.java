@@ -3,19 +3,26 @@ package com.manublock.backend.controllers;
 import com.manublock.backend.contracts.contract.SmartContract;
 import com.manublock.backend.models.Items;
 import com.manublock.backend.services.BlockchainService;
+import com.manublock.backend.services.ContractReadBatcher;
+import com.manublock.backend.services.ItemLineageService;
 import com.manublock.backend.services.ItemService;
+import com.manublock.backend.services.ResourceETagService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.web3j.tuples.generated.Tuple7;
 import org.web3j.tuples.generated.Tuple8;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,16 +31,31 @@ public class ItemTracingController {
 
     private final ItemService itemService;
     private final BlockchainService blockchainService;
+    private final ContractReadBatcher contractReadBatcher;
+    private final ItemLineageService itemLineageService;
+    private final ResourceETagService eTagService;
+
+    private static final int MAX_LINEAGE_IDS = 10_000;
 
     @Autowired
-    public ItemTracingController(ItemService itemService, BlockchainService blockchainService) {
+    public ItemTracingController(ItemService itemService, BlockchainService blockchainService,
+                                 ContractReadBatcher contractReadBatcher, ItemLineageService itemLineageService,
+                                 ResourceETagService eTagService) {
         this.itemService = itemService;
         this.blockchainService = blockchainService;
+        this.contractReadBatcher = contractReadBatcher;
+        this.itemLineageService = itemLineageService;
+        this.eTagService = eTagService;
     }
 
     @GetMapping("/items/{supplyChainId}")
-    public ResponseEntity<?> getItemsBySupplyChain(@PathVariable Long supplyChainId) {
+    public ResponseEntity<?> getItemsBySupplyChain(@PathVariable Long supplyChainId, WebRequest request) {
         try {
+            String eTag = eTagService.itemsBySupplyChainETag(supplyChainId);
+            if (request.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
             List<Items> items = itemService.getItemsBySupplyChain(supplyChainId);
 
             // Convert to simplified DTOs to avoid recursion
@@ -57,7 +79,7 @@ public class ItemTracingController {
                     })
                     .collect(Collectors.toList());
 
-            return ResponseEntity.ok(itemDtos);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(itemDtos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error retrieving items: " + e.getMessage());
@@ -65,8 +87,13 @@ public class ItemTracingController {
     }
 
     @GetMapping("/items/owner/{ownerId}")
-    public ResponseEntity<?> getItemsByOwner(@PathVariable Long ownerId) {
+    public ResponseEntity<?> getItemsByOwner(@PathVariable Long ownerId, WebRequest request) {
         try {
+            String eTag = eTagService.itemsByOwnerETag(ownerId);
+            if (request.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
             List<Items> items = itemService.getItemsByOwner(ownerId);
 
             // Convert to simplified DTOs to avoid recursion
@@ -90,7 +117,7 @@ public class ItemTracingController {
                     })
                     .collect(Collectors.toList());
 
-            return ResponseEntity.ok(itemDtos);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(itemDtos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error retrieving items: " + e.getMessage());
@@ -100,10 +127,12 @@ public class ItemTracingController {
     @GetMapping("/blockchain/item/{itemId}")
     public ResponseEntity<?> getBlockchainItemDetails(@PathVariable Long itemId) {
         try {
-            SmartContract contract = blockchainService.getContract();
-            // Update the Tuple type to match the new return type from the contract
+            // Served from the view cache until an event touches this item
             Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> itemDetails =
-                    contract.getItemDetails(BigInteger.valueOf(itemId)).send();
+                    contractReadBatcher.getItemDetails(List.of(BigInteger.valueOf(itemId))).get(BigInteger.valueOf(itemId));
+            if (itemDetails == null) {
+                throw new RuntimeException("Item " + itemId + " not found on blockchain");
+            }
 
             Map<String, Object> response = new HashMap<>();
             response.put("id", itemDetails.component1().longValue());
@@ -124,8 +153,7 @@ public class ItemTracingController {
     @GetMapping("/blockchain/item/{itemId}/children")
     public ResponseEntity<?> getBlockchainItemChildren(@PathVariable Long itemId) {
         try {
-            SmartContract contract = blockchainService.getContract();
-            List<BigInteger> childIds = contract.getItemChildren(BigInteger.valueOf(itemId)).send();
+            List<BigInteger> childIds = contractReadBatcher.getItemChildren(BigInteger.valueOf(itemId));
 
             List<Long> response = new ArrayList<>();
             for (BigInteger childId : childIds) {
@@ -169,169 +197,31 @@ public class ItemTracingController {
         try {
             Map<String, Object> response = new HashMap<>();
 
-            // Get blockchain item details
-            SmartContract contract = blockchainService.getContract();
-            // Update Tuple type
-            Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> itemDetails = null;
-
-            // Implement retry logic inline for now
-            int maxRetries = 5;
-            int retryCount = 0;
-            long waitTime = 1000; // Start with 1 second
-
-            while (true) {
-                try {
-                    itemDetails = contract.getItemDetails(BigInteger.valueOf(itemId)).send();
-                    break; // Success, exit loop
-                } catch (Exception e) {
-                    if ((e.getMessage().contains("429") || e.getMessage().contains("Too Many Requests"))
-                            && retryCount < maxRetries) {
-                        retryCount++;
-                        System.out.println("Rate limit hit. Retrying in " + waitTime + "ms. Attempt " + retryCount + " of " + maxRetries);
-                        Thread.sleep(waitTime);
-                        waitTime *= 2; // Exponential backoff
-                    } else {
-                        throw e; // Re-throw if not a rate limit error or max retries reached
-                    }
-                }
-            }
-
-            if (itemDetails == null) {
-                throw new RuntimeException("Failed to retrieve item details after retries");
-            }
-
-            Map<String, Object> currentItem = new HashMap<>();
-            currentItem.put("id", itemDetails.component1().longValue());
-            currentItem.put("ownerId", itemDetails.component2().longValue()); // Changed to ownerId
-            currentItem.put("quantity", itemDetails.component3().longValue());
-            currentItem.put("supplyChainId", itemDetails.component4().longValue());
-            currentItem.put("status", itemDetails.component5().intValue());
-            currentItem.put("itemType", itemDetails.component6());
-            currentItem.put("isActive", itemDetails.component7());
+            // Details, parents and children of the item in one batch, then the details of
+            // every linked item in one more: two round trips however many links there are
+            ContractReadBatcher.ItemSnapshot snapshot = contractReadBatcher.getItemSnapshot(BigInteger.valueOf(itemId));
 
+            Map<String, Object> currentItem = toItemMap(snapshot.getDetails());
             response.put("currentState", currentItem);
 
-            // Get parent items (recursively if needed)
-            // Apply same retry pattern
-            List<BigInteger> parentIds = null;
-            retryCount = 0;
-            waitTime = 1000;
-
-            while (true) {
-                try {
-                    parentIds = contract.getItemParents(BigInteger.valueOf(itemId)).send();
-                    break;
-                } catch (Exception e) {
-                    if ((e.getMessage().contains("429") || e.getMessage().contains("Too Many Requests"))
-                            && retryCount < maxRetries) {
-                        retryCount++;
-                        System.out.println("Rate limit hit. Retrying in " + waitTime + "ms. Attempt " + retryCount + " of " + maxRetries);
-                        Thread.sleep(waitTime);
-                        waitTime *= 2;
-                    } else {
-                        throw e;
-                    }
-                }
-            }
-
-            List<Map<String, Object>> parentItems = new ArrayList<>();
-
-            for (BigInteger parentId : parentIds) {
-                // Update Tuple type
-                Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> parentDetails = null;
-                retryCount = 0;
-                waitTime = 1000;
-
-                while (true) {
-                    try {
-                        parentDetails = contract.getItemDetails(parentId).send();
-                        break;
-                    } catch (Exception e) {
-                        if ((e.getMessage().contains("429") || e.getMessage().contains("Too Many Requests"))
-                                && retryCount < maxRetries) {
-                            retryCount++;
-                            System.out.println("Rate limit hit. Retrying in " + waitTime + "ms. Attempt " + retryCount + " of " + maxRetries);
-                            Thread.sleep(waitTime);
-                            waitTime *= 2;
-                        } else {
-                            throw e;
-                        }
-                    }
-                }
-
-                Map<String, Object> parentItem = new HashMap<>();
-                parentItem.put("id", parentDetails.component1().longValue());
-                parentItem.put("ownerId", parentDetails.component2().longValue()); // Changed to ownerId
-                parentItem.put("quantity", parentDetails.component3().longValue());
-                parentItem.put("supplyChainId", parentDetails.component4().longValue());
-                parentItem.put("status", parentDetails.component5().intValue());
-                parentItem.put("itemType", parentDetails.component6());
-                parentItem.put("isActive", parentDetails.component7());
+            Set<BigInteger> linkedIds = new LinkedHashSet<>(snapshot.getParentIds());
+            linkedIds.addAll(snapshot.getChildIds());
+            Map<BigInteger, Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean>> linkedDetails =
+                    contractReadBatcher.getItemDetails(new ArrayList<>(linkedIds));
 
-                parentItems.add(parentItem);
-            }
+            // Get parent items (recursively if needed)
+            List<Map<String, Object>> parentItems = snapshot.getParentIds().stream()
+                    .filter(linkedDetails::containsKey)
+                    .map(parentId -> toItemMap(linkedDetails.get(parentId)))
+                    .collect(Collectors.toList());
 
             response.put("parentItems", parentItems);
 
             // Get child items (derivatives or next in supply chain)
-            // Apply same retry pattern
-            List<BigInteger> childIds = null;
-            retryCount = 0;
-            waitTime = 1000;
-
-            while (true) {
-                try {
-                    childIds = contract.getItemChildren(BigInteger.valueOf(itemId)).send();
-                    break;
-                } catch (Exception e) {
-                    if ((e.getMessage().contains("429") || e.getMessage().contains("Too Many Requests"))
-                            && retryCount < maxRetries) {
-                        retryCount++;
-                        System.out.println("Rate limit hit. Retrying in " + waitTime + "ms. Attempt " + retryCount + " of " + maxRetries);
-                        Thread.sleep(waitTime);
-                        waitTime *= 2;
-                    } else {
-                        throw e;
-                    }
-                }
-            }
-
-            List<Map<String, Object>> childItems = new ArrayList<>();
-
-            for (BigInteger childId : childIds) {
-                // Update Tuple type
-                Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> childDetails = null;
-                retryCount = 0;
-                waitTime = 1000;
-
-                while (true) {
-                    try {
-                        childDetails = contract.getItemDetails(childId).send();
-                        break;
-                    } catch (Exception e) {
-                        if ((e.getMessage().contains("429") || e.getMessage().contains("Too Many Requests"))
-                                && retryCount < maxRetries) {
-                            retryCount++;
-                            System.out.println("Rate limit hit. Retrying in " + waitTime + "ms. Attempt " + retryCount + " of " + maxRetries);
-                            Thread.sleep(waitTime);
-                            waitTime *= 2;
-                        } else {
-                            throw e;
-                        }
-                    }
-                }
-
-                Map<String, Object> childItem = new HashMap<>();
-                childItem.put("id", childDetails.component1().longValue());
-                childItem.put("ownerId", childDetails.component2().longValue()); // Changed to ownerId
-                childItem.put("quantity", childDetails.component3().longValue());
-                childItem.put("supplyChainId", childDetails.component4().longValue());
-                childItem.put("status", childDetails.component5().intValue());
-                childItem.put("itemType", childDetails.component6());
-                childItem.put("isActive", childDetails.component7());
-
-                childItems.add(childItem);
-            }
+            List<Map<String, Object>> childItems = snapshot.getChildIds().stream()
+                    .filter(linkedDetails::containsKey)
+                    .map(childId -> toItemMap(linkedDetails.get(childId)))
+                    .collect(Collectors.toList());
 
             response.put("childItems", childItems);
 
@@ -359,4 +249,67 @@ public class ItemTracingController {
                     .body("Error tracing item history: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Ancestors (direction=up) or descendants (direction=down) of an item from the database
+     * parent links, up to depth hops away
+     */
+    @GetMapping("/item/{itemId}/lineage")
+    public ResponseEntity<?> getItemLineage(@PathVariable Long itemId,
+                                            @RequestParam(defaultValue = "up") String direction,
+                                            @RequestParam(defaultValue = "10") int depth) {
+        try {
+            return ResponseEntity.ok(itemLineageService.getLineage(itemId, direction.toLowerCase(), depth));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error retrieving item lineage: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ids of the ancestors or descendants of an item, nearest first, served from the in-memory
+     * lineage index without touching the database
+     */
+    @GetMapping("/item/{itemId}/lineage/ids")
+    public ResponseEntity<?> getItemLineageIds(@PathVariable Long itemId,
+                                               @RequestParam(defaultValue = "up") String direction,
+                                               @RequestParam(defaultValue = "10") int depth,
+                                               @RequestParam(defaultValue = "1000") int limit) {
+        try {
+            int maxIds = Math.max(1, Math.min(limit, MAX_LINEAGE_IDS));
+            long[] ids = itemLineageService.getLineageIds(itemId, direction.toLowerCase(), depth, maxIds);
+            if (ids == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(Map.of("error", "Lineage index is still loading"));
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("itemId", itemId);
+            response.put("direction", direction.toLowerCase());
+            response.put("depth", depth);
+            response.put("ids", ids);
+            response.put("truncated", ids.length == maxIds);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error retrieving item lineage: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toItemMap(
+            Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> details) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id", details.component1().longValue());
+        item.put("ownerId", details.component2().longValue());
+        item.put("quantity", details.component3().longValue());
+        item.put("supplyChainId", details.component4().longValue());
+        item.put("status", details.component5().intValue());
+        item.put("itemType", details.component6());
+        item.put("isActive", details.component7());
+        return item;
+    }
+}
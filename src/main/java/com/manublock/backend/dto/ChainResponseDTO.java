@@ -1,5 +1,6 @@
 package com.manublock.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.manublock.backend.models.Users;
 import java.time.Instant;
 import java.util.List;
@@ -17,6 +18,10 @@ public class ChainResponseDTO {
     private String blockchainTxHash;
     private Long blockchainId;
 
+    // Only set on the finalize response
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ParticipantAuthorizationDTO> participantAuthorizations;
+
     /**
      * Single comprehensive constructor that handles all fields
      */
@@ -49,4 +54,9 @@ public class ChainResponseDTO {
     public String getBlockchainStatus() { return blockchainStatus; }
     public String getBlockchainTxHash() { return blockchainTxHash; }
     public Long getBlockchainId() { return blockchainId; }
+    public List<ParticipantAuthorizationDTO> getParticipantAuthorizations() { return participantAuthorizations; }
+
+    public void setParticipantAuthorizations(List<ParticipantAuthorizationDTO> participantAuthorizations) {
+        this.participantAuthorizations = participantAuthorizations;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.manublock.backend.dto;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Supply chain list entry without its graph, only the node and edge counts
+ */
+public class ChainSummaryDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private Long createdById;
+    private String createdByUsername;
+    private Instant createdAt;
+    private Instant updatedAt;
+    private String blockchainStatus;
+    private Long blockchainId;
+    private long nodeCount;
+    private long edgeCount;
+
+    public ChainSummaryDTO(Long id, String name, String description, Long createdById, String createdByUsername,
+                           Date createdAt, Date updatedAt, String blockchainStatus, Long blockchainId,
+                           long nodeCount, long edgeCount) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.createdById = createdById;
+        this.createdByUsername = createdByUsername;
+        this.createdAt = createdAt != null ? createdAt.toInstant() : null;
+        this.updatedAt = updatedAt != null ? updatedAt.toInstant() : null;
+        this.blockchainStatus = blockchainStatus;
+        this.blockchainId = blockchainId;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public Long getCreatedById() { return createdById; }
+    public String getCreatedByUsername() { return createdByUsername; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public String getBlockchainStatus() { return blockchainStatus; }
+    public Long getBlockchainId() { return blockchainId; }
+    public long getNodeCount() { return nodeCount; }
+    public long getEdgeCount() { return edgeCount; }
+}
@@ -0,0 +1,66 @@
+package com.manublock.backend.dto;
+
+/**
+ * Outcome of authorizing one assigned user on the blockchain during finalization
+ */
+public class ParticipantAuthorizationDTO {
+    public static final String AUTHORIZED = "AUTHORIZED";
+    public static final String ALREADY_AUTHORIZED = "ALREADY_AUTHORIZED";
+    public static final String PENDING = "PENDING";
+    public static final String FAILED = "FAILED";
+
+    private Long userId;
+    private String username;
+    private String status;
+    private String transactionHash;
+    private String error;
+
+    public ParticipantAuthorizationDTO() {
+    }
+
+    public ParticipantAuthorizationDTO(Long userId, String username, String status) {
+        this.userId = userId;
+        this.username = username;
+        this.status = status;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getTransactionHash() {
+        return transactionHash;
+    }
+
+    public void setTransactionHash(String transactionHash) {
+        this.transactionHash = transactionHash;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -6,7 +6,13 @@ import lombok.Data;
 import java.time.Instant;
 
 @Entity
-@Table(name = "blockchain_transactions")
+@Table(name = "blockchain_transactions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_blockchain_tx_idempotency_key", columnNames = "idempotency_key"),
+        indexes = {
+                // Keyset order of the transaction listing, unfiltered and filtered by status
+                @Index(name = "idx_blockchain_tx_created", columnList = "created_at, id"),
+                @Index(name = "idx_blockchain_tx_status_created", columnList = "status, created_at, id")
+        })
 @Data
 public class BlockchainTransaction {
     @Id
@@ -20,7 +26,7 @@ public class BlockchainTransaction {
     private String parameters;
 
     @Column(nullable = false)
-    private String status;  // PENDING, CONFIRMED, FAILED, REDUNDANT
+    private String status;  // QUEUED, DISPATCHING, PENDING, CONFIRMED, FAILED, REDUNDANT
 
     @Column
     private String transactionHash;
@@ -40,6 +46,65 @@ public class BlockchainTransaction {
     @Column
     private String failureReason;
 
+    // Receipt reconciliation bookkeeping: each pending transaction backs off independently
+    @Column
+    private Instant nextCheckAt;
+
+    @Column
+    private Integer receiptChecks = 0;
+
+    // Gas used by the mined transaction and its function/input shape, for the gas limit profiler
+    @Column
+    private Long gasUsed;
+
+    @Column
+    private String gasProfileKey;
+
+    // Outbox: the encoded contract call, and when a dispatcher may next pick it up
+    @Column(columnDefinition = "TEXT")
+    private String callData;
+
+    @Column
+    private Instant nextAttemptAt;
+
+    // Hash of the encoded call while it is in flight; released once the transaction settles,
+    // so the same call can be sent again later
+    @Column(name = "idempotency_key", length = 66)
+    private String idempotencyKey;
+
+    // Typed call arguments, so reads do not have to parse the parameters string.
+    // userId is the user the call is for: creator, participant, processor, owner or transfer recipient.
+    // actionType holds the item type for createItem/processItem and the action for transferItem.
+    // Source items of processItem are only kept in the transaction_items link table.
+    // orderId is the order of createOrder; order ids and item ids are separate sequences.
+    @Column
+    private Long supplyChainId;
+
+    @Column
+    private Long itemId;
+
+    @Column
+    private Long orderId;
+
+    @Column
+    private Long userId;
+
+    @Column
+    private Long fromUserId;
+
+    @Column
+    private Long quantity;
+
+    @Column
+    private String actionType;
+
+    @Column
+    private Integer statusCode;
+
+    // False for rows written before the typed arguments existed, until they are backfilled
+    @Column
+    private Boolean argumentsIndexed;
+
     public Long getId() {
         return id;
     }
@@ -119,4 +184,140 @@ public class BlockchainTransaction {
     public void setFailureReason(String failureReason) {
         this.failureReason = failureReason;
     }
-}
\ No newline at end of file
+
+    public Instant getNextCheckAt() {
+        return nextCheckAt;
+    }
+
+    public void setNextCheckAt(Instant nextCheckAt) {
+        this.nextCheckAt = nextCheckAt;
+    }
+
+    public Integer getReceiptChecks() {
+        return receiptChecks;
+    }
+
+    public void setReceiptChecks(Integer receiptChecks) {
+        this.receiptChecks = receiptChecks;
+    }
+
+    public Long getGasUsed() {
+        return gasUsed;
+    }
+
+    public void setGasUsed(Long gasUsed) {
+        this.gasUsed = gasUsed;
+    }
+
+    public String getGasProfileKey() {
+        return gasProfileKey;
+    }
+
+    public void setGasProfileKey(String gasProfileKey) {
+        this.gasProfileKey = gasProfileKey;
+    }
+
+    public String getCallData() {
+        return callData;
+    }
+
+    public void setCallData(String callData) {
+        this.callData = callData;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public Long getSupplyChainId() {
+        return supplyChainId;
+    }
+
+    public void setSupplyChainId(Long supplyChainId) {
+        this.supplyChainId = supplyChainId;
+    }
+
+    public Long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(Long itemId) {
+        this.itemId = itemId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getFromUserId() {
+        return fromUserId;
+    }
+
+    public void setFromUserId(Long fromUserId) {
+        this.fromUserId = fromUserId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getActionType() {
+        return actionType;
+    }
+
+    public void setActionType(String actionType) {
+        this.actionType = actionType;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(Integer statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public Boolean getArgumentsIndexed() {
+        return argumentsIndexed;
+    }
+
+    public void setArgumentsIndexed(Boolean argumentsIndexed) {
+        this.argumentsIndexed = argumentsIndexed;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void releaseIdempotencyKeyWhenSettled() {
+        if (!"QUEUED".equals(status) && !"DISPATCHING".equals(status) && !"PENDING".equals(status)) {
+            idempotencyKey = null;
+        }
+    }
+}
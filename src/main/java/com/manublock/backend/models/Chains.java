@@ -2,6 +2,7 @@ package com.manublock.backend.models;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
 import java.util.Date;
 import java.util.List;
 
@@ -37,6 +38,13 @@ public class Chains {
     @Temporal(TemporalType.TIMESTAMP)
     private Date updatedAt;
 
+    // Incremented on every change to the row, used for ETags. Only ever
+    // written as an increment in SQL, so a stale or detached copy of the row
+    // can never move it backwards; the bound value is ignored
+    @Column(name = "row_version", insertable = false)
+    @ColumnTransformer(write = "COALESCE(row_version, 0) + 1 + 0 * COALESCE(?, 0)")
+    private Long version;
+
     // Blockchain-related fields
     @Column
     private String blockchainTxHash;
@@ -138,4 +146,8 @@ public class Chains {
     public void setBlockchainId(Long blockchainId) {
         this.blockchainId = blockchainId;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,55 @@
+package com.manublock.backend.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Last block processed by a named on-chain log consumer, so it can resume after a restart
+ */
+@Entity
+@Table(name = "indexer_checkpoints")
+public class IndexerCheckpoint {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private Long lastProcessedBlock;
+
+    @Column
+    private Instant updatedAt;
+
+    public IndexerCheckpoint() {
+    }
+
+    public IndexerCheckpoint(String name, Long lastProcessedBlock) {
+        this.name = name;
+        this.lastProcessedBlock = lastProcessedBlock;
+        this.updatedAt = Instant.now();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getLastProcessedBlock() {
+        return lastProcessedBlock;
+    }
+
+    public void setLastProcessedBlock(Long lastProcessedBlock) {
+        this.lastProcessedBlock = lastProcessedBlock;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
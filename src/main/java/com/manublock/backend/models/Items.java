@@ -2,6 +2,7 @@ package com.manublock.backend.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
 import java.util.Date;
 import java.util.List;
 
@@ -57,6 +58,13 @@ public class Items {
     @Temporal(TemporalType.TIMESTAMP)
     private Date updatedAt;
 
+    // Incremented on every change to the row, used for ETags. Only ever
+    // written as an increment in SQL, so a stale or detached copy of the row
+    // can never move it backwards; the bound value is ignored
+    @Column(name = "row_version", insertable = false)
+    @ColumnTransformer(write = "COALESCE(row_version, 0) + 1 + 0 * COALESCE(?, 0)")
+    private Long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -169,4 +177,8 @@ public class Items {
     public void setNotes(String notes) {
         this.notes = notes;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -1,6 +1,7 @@
 package com.manublock.backend.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
 import java.util.Date;
 import java.util.List;
 
@@ -50,6 +51,13 @@ public class Order {
     @Temporal(TemporalType.TIMESTAMP)
     private Date updatedAt;
 
+    // Incremented on every change to the row, used for ETags. Only ever
+    // written as an increment in SQL, so a stale or detached copy of the row
+    // can never move it backwards; the bound value is ignored
+    @Column(name = "row_version", insertable = false)
+    @ColumnTransformer(write = "COALESCE(row_version, 0) + 1 + 0 * COALESCE(?, 0)")
+    private Long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -155,6 +163,10 @@ public class Order {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = new Date();
@@ -1,6 +1,7 @@
 package com.manublock.backend.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
 import java.math.BigDecimal;
 
 @Entity
@@ -31,6 +32,13 @@ public class OrderItem {
     @Column
     private Long blockchainItemId; // Reference to blockchain item once created
 
+    // Incremented on every change to the row, used for the order ETags. Only ever
+    // written as an increment in SQL, so a stale or detached copy of the row
+    // can never move it backwards; the bound value is ignored
+    @Column(name = "row_version", insertable = false)
+    @ColumnTransformer(write = "COALESCE(row_version, 0) + 1 + 0 * COALESCE(?, 0)")
+    private Long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -87,4 +95,8 @@ public class OrderItem {
     public void setBlockchainItemId(Long blockchainItemId) {
         this.blockchainItemId = blockchainItemId;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.manublock.backend.models;
+
+import jakarta.persistence.*;
+
+/**
+ * Link between a blockchain transaction and an item it touches, written when the
+ * transaction is queued so an item's timeline is an indexed lookup
+ */
+@Entity
+@Table(name = "transaction_items",
+        indexes = @Index(name = "idx_transaction_items_item", columnList = "item_id, transaction_id"))
+public class TransactionItem {
+
+    public static final String SUBJECT = "SUBJECT";
+    public static final String SOURCE = "SOURCE";
+    public static final String OUTPUT = "OUTPUT";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(nullable = false)
+    private String role;  // SUBJECT, SOURCE, OUTPUT
+
+    public TransactionItem() {
+    }
+
+    public TransactionItem(Long transactionId, Long itemId, String role) {
+        this.transactionId = transactionId;
+        this.itemId = itemId;
+        this.role = role;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public Long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(Long itemId) {
+        this.itemId = itemId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+}
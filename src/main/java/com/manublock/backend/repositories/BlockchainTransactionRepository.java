@@ -1,12 +1,117 @@
 package com.manublock.backend.repositories;
 
 import com.manublock.backend.models.BlockchainTransaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BlockchainTransactionRepository extends JpaRepository<BlockchainTransaction, Long> {
     List<BlockchainTransaction> findByStatus(String status);
-}
\ No newline at end of file
+
+    long countByStatus(String status);
+
+    Optional<BlockchainTransaction> findByIdempotencyKey(String idempotencyKey);
+
+    List<BlockchainTransaction> findByTransactionHashIn(Collection<String> transactionHashes);
+
+    List<BlockchainTransaction> findTop1000ByGasUsedIsNotNullOrderByIdDesc();
+
+    List<BlockchainTransaction> findTop500ByArgumentsIndexedIsNullOrderByIdAsc();
+
+    /**
+     * Transactions linked to an item through transaction_items, oldest first
+     */
+    @Query("SELECT DISTINCT t FROM BlockchainTransaction t JOIN TransactionItem ti ON ti.transactionId = t.id " +
+            "WHERE ti.itemId = :itemId ORDER BY t.createdAt ASC, t.id ASC")
+    List<BlockchainTransaction> findByLinkedItemId(@Param("itemId") Long itemId);
+
+    /**
+     * Transactions with a hash whose next receipt check is due,
+     * least recently attempted first so nothing starves
+     */
+    @Query("SELECT t FROM BlockchainTransaction t WHERE t.status = :status AND t.transactionHash IS NOT NULL " +
+            "AND (t.nextCheckAt IS NULL OR t.nextCheckAt <= :now) " +
+            "ORDER BY t.lastAttempt ASC NULLS FIRST, t.id ASC")
+    List<BlockchainTransaction> findDueForReceiptCheck(@Param("status") String status,
+                                                       @Param("now") Instant now,
+                                                       Pageable pageable);
+
+    @Query("SELECT COUNT(t) FROM BlockchainTransaction t WHERE t.status = :status AND t.transactionHash IS NOT NULL " +
+            "AND (t.nextCheckAt IS NULL OR t.nextCheckAt <= :now)")
+    long countDueForReceiptCheck(@Param("status") String status, @Param("now") Instant now);
+
+    /**
+     * Records a receipt outcome found by the reconciler, only while the row is still PENDING, so a
+     * dispatcher that settled it in the meantime is never overwritten. Touches the reconciler's own
+     * columns only, and releases the idempotency key like the entity callback would.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BlockchainTransaction t SET t.status = :status, t.confirmedAt = :confirmedAt, " +
+            "t.failureReason = :reason, t.lastAttempt = :now, t.nextCheckAt = NULL, t.idempotencyKey = NULL " +
+            "WHERE t.id = :id AND t.status = 'PENDING'")
+    int settlePending(@Param("id") Long id,
+                      @Param("status") String status,
+                      @Param("confirmedAt") Instant confirmedAt,
+                      @Param("reason") String reason,
+                      @Param("now") Instant now);
+
+    /**
+     * Backs off the next receipt check of a transaction that is still PENDING
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BlockchainTransaction t SET t.receiptChecks = :receiptChecks, t.lastAttempt = :now, " +
+            "t.nextCheckAt = :nextCheckAt WHERE t.id = :id AND t.status = 'PENDING'")
+    int scheduleReceiptCheck(@Param("id") Long id,
+                             @Param("receiptChecks") int receiptChecks,
+                             @Param("now") Instant now,
+                             @Param("nextCheckAt") Instant nextCheckAt);
+
+    /**
+     * Locks queued outbox rows that are due for dispatch. Rows locked by another
+     * dispatcher are skipped rather than waited on, so workers never claim the same row.
+     */
+    @Query(value = "SELECT * FROM blockchain_transactions WHERE status = 'QUEUED' " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= :now) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<BlockchainTransaction> lockDueOutboxEntries(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Returns claimed rows that were never broadcast, e.g. because their dispatcher died, to the queue
+     */
+    @Modifying
+    @Query("UPDATE BlockchainTransaction t SET t.status = 'QUEUED', t.nextAttemptAt = :now " +
+            "WHERE t.status = 'DISPATCHING' AND t.lastAttempt < :claimedBefore")
+    int requeueExpiredClaims(@Param("claimedBefore") Instant claimedBefore, @Param("now") Instant now);
+
+    /**
+     * Fails every pending transaction that exceeded the retry limit or expired, in one statement.
+     * Bulk updates skip entity callbacks, so the idempotency key is released here explicitly.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BlockchainTransaction t SET t.status = 'FAILED', t.failureReason = :reason, t.idempotencyKey = NULL " +
+            "WHERE t.status = 'PENDING' AND (t.retryCount >= :maxRetries OR t.createdAt < :expiredBefore)")
+    int failStalePending(@Param("maxRetries") int maxRetries,
+                         @Param("expiredBefore") Instant expiredBefore,
+                         @Param("reason") String reason);
+
+    @Modifying
+    @Query("UPDATE BlockchainTransaction t SET t.orderId = t.itemId, t.itemId = NULL " +
+            "WHERE t.function = :function AND t.itemId IS NOT NULL")
+    int moveItemIdToOrderId(@Param("function") String function);
+
+    @Query("SELECT MIN(t.createdAt) FROM BlockchainTransaction t WHERE t.status = :status")
+    Instant findOldestCreatedAtByStatus(@Param("status") String status);
+}
@@ -1,11 +1,16 @@
 package com.manublock.backend.repositories;
 
+import com.manublock.backend.dto.ChainSummaryDTO;
 import com.manublock.backend.models.Chains;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +26,47 @@ public interface ChainRepository extends JpaRepository<Chains, Long> {
      * @return The supply chain with the matching blockchain ID, if found
      */
     Optional<Chains> findByBlockchainId(Long blockchainId);
+
+    List<Chains> findByBlockchainIdIn(Collection<Long> blockchainIds);
+
+    @Query("SELECT COALESCE(c.version, 0) FROM Chains c WHERE c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Marks the chain as changed when one of its nodes or edges changes, so its ETag moves on
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Chains c SET c.version = COALESCE(c.version, 0) + 1 WHERE c.id = :id")
+    int incrementVersion(@Param("id") Long id);
+
+    /**
+     * Chains after the given id in id order, with their creator; nodes and edges are loaded separately in bulk
+     */
+    @Query("SELECT c FROM Chains c LEFT JOIN FETCH c.createdBy WHERE c.id > :afterId ORDER BY c.id")
+    List<Chains> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT c FROM Chains c LEFT JOIN FETCH c.createdBy WHERE c.id > :afterId AND c.id IN (" +
+            "SELECT n.supplyChain.id FROM Nodes n WHERE n.assignedUser.id = :userId) ORDER BY c.id")
+    List<Chains> findPageByAssignedUserAfter(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    /**
+     * Chain summaries with node and edge counts, in one query
+     */
+    @Query("SELECT new com.manublock.backend.dto.ChainSummaryDTO(c.id, c.name, c.description, u.id, u.username, " +
+            "c.createdAt, c.updatedAt, c.blockchainStatus, c.blockchainId, " +
+            "(SELECT COUNT(n) FROM Nodes n WHERE n.supplyChain = c), " +
+            "(SELECT COUNT(e) FROM Edges e WHERE e.supplyChain = c)) " +
+            "FROM Chains c LEFT JOIN c.createdBy u WHERE c.id > :afterId ORDER BY c.id")
+    List<ChainSummaryDTO> findSummariesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.manublock.backend.dto.ChainSummaryDTO(c.id, c.name, c.description, u.id, u.username, " +
+            "c.createdAt, c.updatedAt, c.blockchainStatus, c.blockchainId, " +
+            "(SELECT COUNT(n) FROM Nodes n WHERE n.supplyChain = c), " +
+            "(SELECT COUNT(e) FROM Edges e WHERE e.supplyChain = c)) " +
+            "FROM Chains c LEFT JOIN c.createdBy u WHERE c.id > :afterId AND c.id IN (" +
+            "SELECT an.supplyChain.id FROM Nodes an WHERE an.assignedUser.id = :userId) ORDER BY c.id")
+    List<ChainSummaryDTO> findSummariesByAssignedUserAfter(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                                           Pageable pageable);
 }
\ No newline at end of file
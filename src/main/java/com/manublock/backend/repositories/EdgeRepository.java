@@ -2,12 +2,24 @@ package com.manublock.backend.repositories;
 
 import com.manublock.backend.models.Edges;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface EdgeRepository extends JpaRepository<Edges, Long> {
     List<Edges> findBySource_IdOrTarget_Id(Long sourceId, Long targetId);
     List<Edges> findBySupplyChain_Id(Long supplyChainId);
+
+    @Query("SELECT e FROM Edges e JOIN FETCH e.source JOIN FETCH e.target WHERE e.supplyChain.id IN :supplyChainIds")
+    List<Edges> findWithNodesBySupplyChainIdIn(@Param("supplyChainIds") Collection<Long> supplyChainIds);
+
+    /**
+     * Id, source node id and target node id of every edge in a chain
+     */
+    @Query("SELECT e.id, e.source.id, e.target.id FROM Edges e WHERE e.supplyChain.id = :supplyChainId")
+    List<Object[]> findEndpointsBySupplyChainId(@Param("supplyChainId") Long supplyChainId);
 }
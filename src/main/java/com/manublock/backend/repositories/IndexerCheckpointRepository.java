@@ -0,0 +1,9 @@
+package com.manublock.backend.repositories;
+
+import com.manublock.backend.models.IndexerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IndexerCheckpointRepository extends JpaRepository<IndexerCheckpoint, String> {
+}
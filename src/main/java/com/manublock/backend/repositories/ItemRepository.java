@@ -1,9 +1,13 @@
 package com.manublock.backend.repositories;
 
 import com.manublock.backend.models.Items;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,4 +22,27 @@ public interface ItemRepository extends JpaRepository<Items, Long> {
     List<Items> findByOwner_IdAndStatus(Long ownerId, String status);
 
     List<Items> findByOwner_IdAndItemTypeIn(Long ownerId, List<String> itemTypes);
+
+    boolean existsByBlockchainTxHashAndIdNot(String blockchainTxHash, Long id);
+
+    /**
+     * Items with their owner and supply chain joined in, for views listing many items at once
+     */
+    @EntityGraph(attributePaths = {"owner", "supplyChain"})
+    @Query("SELECT i FROM Items i WHERE i.id IN :ids")
+    List<Items> findWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Count, version sum and highest id of a chain's items; any insert, update or delete changes one of them
+     */
+    @Query("SELECT COUNT(i), COALESCE(SUM(COALESCE(i.version, 0)), 0), COALESCE(MAX(i.id), 0) " +
+            "FROM Items i WHERE i.supplyChain.id = :supplyChainId")
+    List<Object[]> findVersionStampBySupplyChainId(@Param("supplyChainId") Long supplyChainId);
+
+    /**
+     * As above for an owner's items, also covering the supply chains whose names they are listed with
+     */
+    @Query("SELECT COUNT(i), COALESCE(SUM(COALESCE(i.version, 0) + COALESCE(c.version, 0)), 0), COALESCE(MAX(i.id), 0) " +
+            "FROM Items i LEFT JOIN i.supplyChain c WHERE i.owner.id = :ownerId")
+    List<Object[]> findVersionStampByOwnerId(@Param("ownerId") Long ownerId);
 }
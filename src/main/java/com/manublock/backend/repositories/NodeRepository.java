@@ -2,13 +2,22 @@ package com.manublock.backend.repositories;
 
 import com.manublock.backend.models.Nodes;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NodeRepository extends JpaRepository<Nodes, Long> {
     List<Nodes> findBySupplyChain_Id(Long supplyChainId);
+
+    @Query("SELECT n FROM Nodes n LEFT JOIN FETCH n.assignedUser WHERE n.supplyChain.id IN :supplyChainIds")
+    List<Nodes> findWithUserBySupplyChainIdIn(@Param("supplyChainIds") Collection<Long> supplyChainIds);
+
+    @Query("SELECT n.id FROM Nodes n WHERE n.supplyChain.id = :supplyChainId")
+    List<Long> findIdsBySupplyChainId(@Param("supplyChainId") Long supplyChainId);
     List<Nodes> findByStatus(String status);
     List<Nodes> findBySupplyChain_IdAndStatus(Long supplyChainId, String status);
     List<Nodes> findByAssignedUser_Id(Long userId);
@@ -2,6 +2,8 @@ package com.manublock.backend.repositories;
 
 import com.manublock.backend.models.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +17,22 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     // Additional methods
     List<Order> findByCustomer_IdAndStatus(Long customerId, String status);
-}
\ No newline at end of file
+
+    /**
+     * Version of an order plus the count and version sum of its order items, which are saved on their own
+     */
+    @Query("SELECT COALESCE(o.version, 0), " +
+            "(SELECT COUNT(oi) FROM OrderItem oi WHERE oi.order = o), " +
+            "(SELECT COALESCE(SUM(COALESCE(oi.version, 0)), 0) FROM OrderItem oi WHERE oi.order = o) " +
+            "FROM Order o WHERE o.orderNumber = :orderNumber")
+    List<Object[]> findVersionStampByOrderNumber(@Param("orderNumber") String orderNumber);
+
+    /**
+     * Count, version sum and highest id of a customer's orders, and count and version sum of their order items
+     */
+    @Query("SELECT COUNT(o), COALESCE(SUM(COALESCE(o.version, 0)), 0), COALESCE(MAX(o.id), 0), " +
+            "(SELECT COUNT(oi) FROM OrderItem oi WHERE oi.order.customer.id = :customerId), " +
+            "(SELECT COALESCE(SUM(COALESCE(oi.version, 0)), 0) FROM OrderItem oi WHERE oi.order.customer.id = :customerId) " +
+            "FROM Order o WHERE o.customer.id = :customerId")
+    List<Object[]> findVersionStampByCustomerId(@Param("customerId") Long customerId);
+}
@@ -0,0 +1,21 @@
+package com.manublock.backend.repositories;
+
+import com.manublock.backend.models.TransactionItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TransactionItemRepository extends JpaRepository<TransactionItem, Long> {
+    List<TransactionItem> findByTransactionIdIn(Collection<Long> transactionIds);
+
+    @Modifying
+    @Query("DELETE FROM TransactionItem ti WHERE ti.transactionId IN (" +
+            "SELECT t.id FROM BlockchainTransaction t WHERE t.function = :function)")
+    int deleteByTransactionFunction(@Param("function") String function);
+}
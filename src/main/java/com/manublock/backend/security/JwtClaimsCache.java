@@ -0,0 +1,94 @@
+package com.manublock.backend.security;
+
+import com.manublock.backend.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Verified tokens by SHA-256 digest, so a client sending the same bearer token on every request
+ * pays for the signature check and claims parse once. The digest covers the signature, so a
+ * tampered token never matches a cached one. Entries are served only until the token's own
+ * expiry and the least recently used are dropped beyond the size limit.
+ */
+@Component
+public class JwtClaimsCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final JwtUtil jwtUtil;
+    private final Map<String, CachedToken> tokens;
+
+    public JwtClaimsCache(JwtUtil jwtUtil, @Value("${jwt.claims-cache.max-entries:10000}") int maxEntries) {
+        this.jwtUtil = jwtUtil;
+        this.tokens = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Principal of a valid token. Tokens that are not cached are verified by {@link JwtUtil},
+     * which throws for bad signatures and expired tokens exactly as before.
+     */
+    public JwtPrincipal authenticate(String token) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+
+        CachedToken cached = tokens.get(key);
+        if (cached != null) {
+            if (now < cached.expiresAt) {
+                return cached.principal;
+            }
+            tokens.remove(key);
+        }
+
+        Claims claims = jwtUtil.extractClaims(token);
+        Number id = claims.get("id", Number.class);
+        JwtPrincipal principal = new JwtPrincipal(
+                id != null ? id.longValue() : null,
+                claims.getSubject(),
+                claims.get("username", String.class),
+                claims.get("role", String.class));
+
+        // Tokens without an expiry are verified every time rather than cached indefinitely
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            tokens.put(key, new CachedToken(principal, expiration.getTime()));
+        }
+        return principal;
+    }
+
+    private static String digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        sha256.reset();
+        return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class CachedToken {
+        private final JwtPrincipal principal;
+        private final long expiresAt;
+
+        CachedToken(JwtPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.manublock.backend.security;
+
+import java.security.Principal;
+
+/**
+ * Authenticated user as described by a verified token's claims. Its name is the email subject,
+ * so Authentication.getName() stays what it was before the id and role were exposed.
+ */
+public class JwtPrincipal implements Principal {
+    private final Long id;
+    private final String email;
+    private final String username;
+    private final String role;
+
+    public JwtPrincipal(Long id, String email, String username, String role) {
+        this.id = id;
+        this.email = email;
+        this.username = username;
+        this.role = role;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
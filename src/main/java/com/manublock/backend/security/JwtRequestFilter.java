@@ -1,8 +1,8 @@
 package com.manublock.backend.security;
 
-import com.manublock.backend.utils.JwtUtil;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import jakarta.servlet.FilterChain;
@@ -10,13 +10,14 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
-    private final JwtUtil jwtUtil;
+    private final JwtClaimsCache claimsCache;
 
-    public JwtRequestFilter(JwtUtil jwtUtil) {
-        this.jwtUtil = jwtUtil;
+    public JwtRequestFilter(JwtClaimsCache claimsCache) {
+        this.claimsCache = claimsCache;
     }
 
     @Override
@@ -26,11 +27,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             String token = authorizationHeader.substring(7);
-            String email = jwtUtil.extractEmail(token);
+            JwtPrincipal principal = claimsCache.authenticate(token);
 
-            if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            if (principal.getEmail() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                List<SimpleGrantedAuthority> authorities = principal.getRole() != null
+                        ? List.of(new SimpleGrantedAuthority("ROLE_" + principal.getRole()))
+                        : List.of();
                 UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(email, null, null);
+                        new UsernamePasswordAuthenticationToken(principal, null, authorities);
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         }
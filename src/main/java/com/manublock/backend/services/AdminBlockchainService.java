@@ -16,7 +16,6 @@ import org.web3j.tx.TransactionManager;
 import org.web3j.tx.gas.ContractGasProvider;
 
 import java.math.BigInteger;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -36,6 +35,7 @@ public class AdminBlockchainService {
     private final TransactionManager adminTransactionManager;
     private final ContractGasProvider gasProvider;
     private final SmartContract adminContract;
+    private final BlockchainOutboxService outboxService;
 
     @Autowired
     public AdminBlockchainService(
@@ -46,6 +46,7 @@ public class AdminBlockchainService {
             Credentials credentials,
             TransactionManager transactionManager,
             ContractGasProvider gasProvider,
+            BlockchainOutboxService outboxService,
             @Value("${blockchain.contract.address}") String contractAddress) {
 
         this.blockchainService = blockchainService;
@@ -56,6 +57,7 @@ public class AdminBlockchainService {
         this.adminTransactionManager = transactionManager;
         this.gasProvider = gasProvider;
         this.adminContract = SmartContract.load(contractAddress, web3j, transactionManager, gasProvider);
+        this.outboxService = outboxService;
     }
 
     /**
@@ -73,10 +75,8 @@ public class AdminBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("authorizeParticipant");
         tx.setParameters(supplyChainId + "," + participantUserId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setSupplyChainId(supplyChainId);
+        tx.setUserId(participantUserId);
 
         // Use the admin contract instance with user ID (not wallet address)
         RemoteFunctionCall<TransactionReceipt> functionCall =
@@ -84,8 +84,8 @@ public class AdminBlockchainService {
                         BigInteger.valueOf(supplyChainId),
                         BigInteger.valueOf(participantUserId)); // Changed from wallet address to user ID
 
-        // Use the blockchain service's transaction handling mechanism
-        return blockchainService.sendTransactionWithRetry(functionCall, tx);
+        // Queued in the caller's transaction; the outbox dispatchers send it after commit
+        return outboxService.enqueue(tx, functionCall);
     }
 
     /**
@@ -107,10 +107,11 @@ public class AdminBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("createItem");
         tx.setParameters(itemId + "," + supplyChainId + "," + quantity + "," + itemType + "," + creatorId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(itemId);
+        tx.setSupplyChainId(supplyChainId);
+        tx.setQuantity(quantity);
+        tx.setActionType(itemType);
+        tx.setUserId(creatorId);
 
         // Updated function call with creator user ID
         RemoteFunctionCall<TransactionReceipt> functionCall =
@@ -121,7 +122,7 @@ public class AdminBlockchainService {
                         itemType,
                         BigInteger.valueOf(creatorId)); // Added creator ID parameter
 
-        return blockchainService.sendTransactionWithRetry(functionCall, tx);
+        return outboxService.enqueue(tx, functionCall);
     }
 
     /**
@@ -146,10 +147,11 @@ public class AdminBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("transferItem");
         tx.setParameters(itemId + "," + toUserId + "," + quantity + "," + actionType + "," + fromUserId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(itemId);
+        tx.setUserId(toUserId);
+        tx.setQuantity(quantity);
+        tx.setActionType(actionType);
+        tx.setFromUserId(fromUserId);
 
         // Updated function call with user IDs instead of wallet addresses
         RemoteFunctionCall<TransactionReceipt> functionCall =
@@ -160,7 +162,7 @@ public class AdminBlockchainService {
                         actionType,
                         BigInteger.valueOf(fromUserId)); // Added from user ID parameter
 
-        return blockchainService.sendTransactionWithRetry(functionCall, tx);
+        return outboxService.enqueue(tx, functionCall);
     }
 
     /**
@@ -196,10 +198,10 @@ public class AdminBlockchainService {
         tx.setFunction("processItem");
         tx.setParameters(sourceItemIds + "," + newItemId + ","
                 + inputQuantities + "," + outputQuantity + "," + newItemType + "," + processorId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(newItemId);
+        tx.setQuantity(outputQuantity);
+        tx.setActionType(newItemType);
+        tx.setUserId(processorId);
 
         // Updated function call with processor ID parameter
         RemoteFunctionCall<TransactionReceipt> functionCall =
@@ -211,7 +213,7 @@ public class AdminBlockchainService {
                         newItemType,
                         BigInteger.valueOf(processorId)); // Added processor ID parameter
 
-        return blockchainService.sendTransactionWithRetry(functionCall, tx);
+        return outboxService.enqueue(tx, functionCall, sourceItemIds);
     }
 
     /**
@@ -227,10 +229,9 @@ public class AdminBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("updateItemStatus");
         tx.setParameters(itemId + "," + newStatus + "," + ownerId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(itemId);
+        tx.setStatusCode(newStatus);
+        tx.setUserId(ownerId);
 
         // Updated function call with owner ID parameter
         RemoteFunctionCall<TransactionReceipt> functionCall =
@@ -239,6 +240,6 @@ public class AdminBlockchainService {
                         BigInteger.valueOf(newStatus),
                         BigInteger.valueOf(ownerId)); // Added owner ID parameter
 
-        return blockchainService.sendTransactionWithRetry(functionCall, tx);
+        return outboxService.enqueue(tx, functionCall);
     }
 }
\ No newline at end of file
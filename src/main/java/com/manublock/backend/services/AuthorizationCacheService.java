@@ -0,0 +1,110 @@
+package com.manublock.backend.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Shared, size-bounded cache of on-chain participant authorizations.
+ * The contract has no way to revoke an authorization, so positive answers are kept until
+ * evicted, while negative answers expire after a TTL. ParticipantAuthorized events warm the
+ * cache, and misses for a whole supply chain are filled with one batched eth_call round trip
+ * that goes straight to the contract, past the view cache, so the negative TTL is the real bound.
+ */
+@Service
+public class AuthorizationCacheService {
+
+    private final ContractReadBatcher contractReadBatcher;
+    private final long negativeTtlMs;
+    private final Map<String, CachedAuthorization> cache;
+
+    @Autowired
+    public AuthorizationCacheService(
+            ContractReadBatcher contractReadBatcher,
+            @Value("${blockchain.authorization-cache.max-entries:50000}") int maxEntries,
+            @Value("${blockchain.authorization-cache.negative-ttl-ms:60000}") long negativeTtlMs) {
+        this.contractReadBatcher = contractReadBatcher;
+        this.negativeTtlMs = negativeTtlMs;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAuthorization> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Authorization of each user on a supply chain, reading all cache misses in one batch
+     * @param blockchainId on-chain supply chain id
+     * @return authorization by user id
+     */
+    public Map<Long, Boolean> getAuthorizations(Long blockchainId, Collection<Long> userIds) throws IOException {
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (Long userId : userIds) {
+            CachedAuthorization cached = cache.get(key(blockchainId, userId));
+            if (cached != null && (cached.authorized || cached.expiresAt > now)) {
+                result.put(userId, cached.authorized);
+            } else {
+                misses.add(userId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            List<BigInteger> participantIds = misses.stream()
+                    .map(BigInteger::valueOf)
+                    .collect(Collectors.toList());
+            Map<BigInteger, Boolean> fetched =
+                    contractReadBatcher.isParticipantAuthorized(BigInteger.valueOf(blockchainId), participantIds);
+
+            for (Long userId : misses) {
+                Boolean authorized = fetched.get(BigInteger.valueOf(userId));
+                if (authorized == null) {
+                    // Reverted or unanswered: report unauthorized without caching it
+                    result.put(userId, false);
+                    continue;
+                }
+                cache.put(key(blockchainId, userId), new CachedAuthorization(authorized, now + negativeTtlMs));
+                result.put(userId, authorized);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records an authorization seen in a ParticipantAuthorized event
+     */
+    public void markAuthorized(Long blockchainId, Long userId) {
+        cache.put(key(blockchainId, userId), new CachedAuthorization(true, Long.MAX_VALUE));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private static String key(Long blockchainId, Long userId) {
+        return blockchainId + ":" + userId;
+    }
+
+    private static class CachedAuthorization {
+        private final boolean authorized;
+        private final long expiresAt;
+
+        CachedAuthorization(boolean authorized, long expiresAt) {
+            this.authorized = authorized;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -10,11 +10,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.data.domain.PageRequest;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -22,20 +32,30 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Service to listen to smart contract events and update local database
- * with rate limiting to avoid Infura 429 errors
+ * Service to listen to smart contract events and update local database.
+ * Calls go through the rate-limited Web3j client, see RpcRateLimitInterceptor
  */
 @Service
 public class BlockchainEventListenerService {
     private static final Logger LOGGER = Logger.getLogger(BlockchainEventListenerService.class.getName());
-    private static final int MAX_TRANSACTIONS_PER_BATCH = 5;
     private static final int MAX_RETRY_ATTEMPTS = 5;
     private static final int RETRY_EXPIRATION_HOURS = 24;
 
+    // Adaptive reconciler bounds: batch size and poll delay move between these as the backlog changes
+    private static final int MIN_RECONCILE_BATCH = 20;
+    private static final int MAX_RECONCILE_BATCH = 500;
+    private static final long MIN_RECONCILE_DELAY_SECONDS = 5;
+    private static final int RECEIPT_BATCH_CHUNK = 100;
+
+    // Per-transaction receipt check backoff
+    private static final long RECEIPT_CHECK_BASE_BACKOFF_SECONDS = 15;
+    private static final long RECEIPT_CHECK_MAX_BACKOFF_SECONDS = 1800;
+
     private final Web3j web3j;
     private final BlockchainService blockchainService;
     private final ChainService chainService;
     private final BlockchainTransactionRepository blockchainTransactionRepository;
+    private final ContractEventIndexerService contractEventIndexer;
 
     // Rate limiting settings with a longer polling interval to reduce API calls
     @Value("${blockchain.polling.interval:600}")
@@ -44,28 +64,39 @@ public class BlockchainEventListenerService {
     private List<Disposable> subscriptions = new ArrayList<>();
     private ScheduledExecutorService scheduledExecutor;
 
+    // Reconciler state, only touched from the scheduler thread apart from reads for reporting
+    private volatile int reconcileBatchSize = MIN_RECONCILE_BATCH;
+    private volatile long reconcileDelaySeconds;
+    private volatile long lastPendingCount;
+    private volatile long lastDueCount;
+    private volatile int lastReconciledCount;
+    private volatile Instant oldestPendingCreatedAt;
+    private volatile Instant lastReconcileRun;
+
     @Autowired
     public BlockchainEventListenerService(
             Web3j web3j,
             BlockchainService blockchainService,
             ChainService chainService,
-            BlockchainTransactionRepository blockchainTransactionRepository) {
+            BlockchainTransactionRepository blockchainTransactionRepository,
+            ContractEventIndexerService contractEventIndexer) {
         this.web3j = web3j;
         this.blockchainService = blockchainService;
         this.chainService = chainService;
         this.blockchainTransactionRepository = blockchainTransactionRepository;
+        this.contractEventIndexer = contractEventIndexer;
     }
 
     @EventListener(ApplicationReadyEvent.class)
     public void setupPolling() {
         LOGGER.info("Setting up blockchain event polling with " + pollingIntervalSeconds + " second interval");
 
-        // Use a scheduled executor instead of continuous polling
+        // Use a scheduled executor instead of continuous polling; each cycle picks its own next delay
+        reconcileDelaySeconds = pollingIntervalSeconds;
         scheduledExecutor = Executors.newScheduledThreadPool(1);
-        scheduledExecutor.scheduleWithFixedDelay(
-                this::pollBlockchainEvents,
+        scheduledExecutor.schedule(
+                this::runPollCycle,
                 30, // Initial delay (30 seconds to allow system to start up properly)
-                pollingIntervalSeconds, // Polling interval (default changed to 10 minutes)
                 TimeUnit.SECONDS
         );
 
@@ -78,6 +109,19 @@ public class BlockchainEventListenerService {
         );
     }
 
+    /**
+     * Runs one poll and reschedules itself with the delay chosen by the reconciler
+     */
+    private void runPollCycle() {
+        try {
+            pollBlockchainEvents();
+        } finally {
+            if (!scheduledExecutor.isShutdown()) {
+                scheduledExecutor.schedule(this::runPollCycle, reconcileDelaySeconds, TimeUnit.SECONDS);
+            }
+        }
+    }
+
     /**
      * Method to poll for events manually instead of using continuous subscriptions
      */
@@ -87,83 +131,168 @@ public class BlockchainEventListenerService {
             SmartContract contract = blockchainService.getContract();
             String contractAddress = contract.getContractAddress();
 
+            // Apply contract events from the blocks since the last checkpoint
+            try {
+                contractEventIndexer.indexNewEvents();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Contract event indexing failed, will resume from checkpoint", e);
+            }
+
             // Check for recent transactions and update database
             checkPendingTransactions();
 
             LOGGER.info("✅ Polled blockchain events successfully");
         } catch (Exception e) {
+            // 429s are absorbed by the RPC rate limiter, so anything reaching here is a real failure
             LOGGER.log(Level.SEVERE, "❌ Error polling blockchain events", e);
-
-            // If it's a rate limit error, log but don't take action - the fixed delay will handle backoff
-            if (e.getMessage() != null && e.getMessage().contains("429")) {
-                LOGGER.warning("Rate limit hit, waiting for next scheduled poll");
-            }
         }
     }
 
     /**
-     * Check for pending transactions and update their status
-     * Limited to processing a maximum number of transactions per batch
+     * Reconcile pending transactions against their on-chain receipts.
+     * Work is taken least recently attempted first, each transaction backs off on its own
+     * after a miss, receipts are fetched with JSON-RPC batch calls, and the batch size and
+     * poll rate grow while a due backlog remains.
      */
     private void checkPendingTransactions() {
         try {
-            List<BlockchainTransaction> pendingTxs = blockchainTransactionRepository.findByStatus("PENDING");
+            Instant now = Instant.now();
+            List<BlockchainTransaction> dueTxs = blockchainTransactionRepository.findDueForReceiptCheck(
+                    "PENDING", now, PageRequest.of(0, reconcileBatchSize));
 
-            // Process only a limited batch size to avoid rate limiting
-            int txCount = Math.min(pendingTxs.size(), MAX_TRANSACTIONS_PER_BATCH);
-            LOGGER.info("Processing " + txCount + " of " + pendingTxs.size() + " pending transactions");
+            if (!dueTxs.isEmpty()) {
+                Map<String, Optional<TransactionReceipt>> receipts = fetchReceipts(dueTxs);
 
-            for (int i = 0; i < txCount; i++) {
-                BlockchainTransaction tx = pendingTxs.get(i);
+                // Each row is updated on its own and only while still PENDING: the dispatcher that
+                // sent it may record the outcome at the same time from its own copy
+                for (BlockchainTransaction tx : dueTxs) {
+                    Optional<TransactionReceipt> receipt = receipts.get(tx.getTransactionHash());
 
-                // Skip transactions without hash
-                if (tx.getTransactionHash() == null || tx.getTransactionHash().isEmpty()) {
-                    continue;
-                }
-
-                try {
-                    // Check if transaction has been confirmed
-                    web3j.ethGetTransactionReceipt(tx.getTransactionHash())
-                            .sendAsync()
-                            .thenAccept(receipt -> {
-                                if (receipt.getTransactionReceipt().isPresent()) {
-                                    // Transaction confirmed
-                                    tx.setStatus("CONFIRMED");
-                                    tx.setConfirmedAt(Instant.now());
-                                    blockchainTransactionRepository.save(tx);
-                                    LOGGER.info("Transaction confirmed: " + tx.getTransactionHash());
-
-                                    // If it's a supply chain creation, update the chain status
-                                    if ("createSupplyChain".equals(tx.getFunction())) {
-                                        try {
-                                            Long chainId = Long.valueOf(tx.getParameters());
-                                            chainService.updateBlockchainInfo(chainId, tx.getTransactionHash());
-                                        } catch (Exception e) {
-                                            LOGGER.log(Level.SEVERE, "Error updating supply chain status", e);
-                                        }
-                                    }
-                                } else {
-                                    // Transaction not yet confirmed - update last attempt
-                                    tx.setLastAttempt(Instant.now());
-                                    blockchainTransactionRepository.save(tx);
-                                }
-                            })
-                            .exceptionally(e -> {
-                                LOGGER.log(Level.WARNING, "Error checking transaction receipt", e);
-                                return null;
-                            });
-
-                    // Add a small delay between transactions to avoid rate limiting
-                    Thread.sleep(200);
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Error processing transaction: " + tx.getTransactionHash(), e);
+                    if (receipt != null && receipt.isPresent()) {
+                        applyReceipt(tx, receipt.get());
+                    } else {
+                        // No receipt yet (or no answer for it) - back off this transaction only
+                        scheduleNextReceiptCheck(tx, now);
+                    }
                 }
             }
+
+            lastReconciledCount = dueTxs.size();
+            lastDueCount = blockchainTransactionRepository.countDueForReceiptCheck("PENDING", Instant.now());
+            lastPendingCount = blockchainTransactionRepository.countByStatus("PENDING");
+            oldestPendingCreatedAt = blockchainTransactionRepository.findOldestCreatedAtByStatus("PENDING");
+            lastReconcileRun = Instant.now();
+
+            adaptReconcileRate(lastDueCount);
+
+            LOGGER.info("Reconciled " + lastReconciledCount + " pending transactions; backlog " + lastPendingCount +
+                    " (" + lastDueCount + " due), oldest " + oldestPendingAgeSeconds() + "s, next batch " +
+                    reconcileBatchSize + " in " + reconcileDelaySeconds + "s");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error checking pending transactions", e);
         }
     }
 
+    /**
+     * Fetch receipts for the given transactions with JSON-RPC batch requests
+     * @return receipt lookup by hash; hashes missing from the map got no usable answer
+     */
+    private Map<String, Optional<TransactionReceipt>> fetchReceipts(List<BlockchainTransaction> txs) throws IOException {
+        Map<String, Optional<TransactionReceipt>> receipts = new HashMap<>();
+
+        for (int start = 0; start < txs.size(); start += RECEIPT_BATCH_CHUNK) {
+            List<BlockchainTransaction> chunk = txs.subList(start, Math.min(start + RECEIPT_BATCH_CHUNK, txs.size()));
+
+            BatchRequest batch = web3j.newBatch();
+            Map<Long, String> hashByRequestId = new HashMap<>();
+            for (BlockchainTransaction tx : chunk) {
+                Request<?, EthGetTransactionReceipt> request = web3j.ethGetTransactionReceipt(tx.getTransactionHash());
+                hashByRequestId.put(request.getId(), tx.getTransactionHash());
+                batch.add(request);
+            }
+
+            for (Response<?> response : batch.send().getResponses()) {
+                String hash = hashByRequestId.get(response.getId());
+                if (hash != null && !response.hasError()) {
+                    receipts.put(hash, ((EthGetTransactionReceipt) response).getTransactionReceipt());
+                }
+            }
+        }
+
+        return receipts;
+    }
+
+    private void applyReceipt(BlockchainTransaction tx, TransactionReceipt receipt) {
+        Instant now = Instant.now();
+
+        if (!receipt.isStatusOK()) {
+            if (blockchainTransactionRepository.settlePending(tx.getId(), "FAILED", null,
+                    "Transaction reverted on-chain with status " + receipt.getStatus(), now) > 0) {
+                LOGGER.warning("Transaction reverted: " + tx.getTransactionHash());
+            }
+            return;
+        }
+
+        if (blockchainTransactionRepository.settlePending(tx.getId(), "CONFIRMED", now, null, now) == 0) {
+            // Settled by its dispatcher since it was read
+            return;
+        }
+        LOGGER.info("Transaction confirmed: " + tx.getTransactionHash());
+
+        // If it's a supply chain creation, update the chain status
+        if ("createSupplyChain".equals(tx.getFunction())) {
+            try {
+                // Parameters are "blockchainId,creatorUserId"
+                Long blockchainId = Long.valueOf(tx.getParameters().split(",")[0].trim());
+                chainService.updateBlockchainInfoByBlockchainId(blockchainId, tx.getTransactionHash());
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Error updating supply chain status", e);
+            }
+        }
+    }
+
+    private void scheduleNextReceiptCheck(BlockchainTransaction tx, Instant now) {
+        int checks = tx.getReceiptChecks() != null ? tx.getReceiptChecks() : 0;
+        long backoff = Math.min(RECEIPT_CHECK_MAX_BACKOFF_SECONDS,
+                RECEIPT_CHECK_BASE_BACKOFF_SECONDS << Math.min(checks, 16));
+
+        blockchainTransactionRepository.scheduleReceiptCheck(tx.getId(), checks + 1, now, now.plusSeconds(backoff));
+    }
+
+    /**
+     * Grow the batch and poll faster while due work is left over, shrink back when caught up
+     */
+    private void adaptReconcileRate(long dueBacklog) {
+        if (dueBacklog > 0) {
+            reconcileBatchSize = Math.min(reconcileBatchSize * 2, MAX_RECONCILE_BATCH);
+            reconcileDelaySeconds = Math.max(reconcileDelaySeconds / 2, MIN_RECONCILE_DELAY_SECONDS);
+        } else {
+            reconcileBatchSize = Math.max(reconcileBatchSize / 2, MIN_RECONCILE_BATCH);
+            reconcileDelaySeconds = Math.min(reconcileDelaySeconds * 2, pollingIntervalSeconds);
+        }
+    }
+
+    private long oldestPendingAgeSeconds() {
+        Instant oldest = oldestPendingCreatedAt;
+        return oldest != null ? java.time.Duration.between(oldest, Instant.now()).getSeconds() : 0;
+    }
+
+    /**
+     * Snapshot of the pending transaction backlog as seen by the last reconcile run
+     */
+    public Map<String, Object> getReconcilerStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("pendingCount", lastPendingCount);
+        status.put("dueCount", lastDueCount);
+        status.put("oldestPendingCreatedAt", oldestPendingCreatedAt);
+        status.put("oldestPendingAgeSeconds", oldestPendingAgeSeconds());
+        status.put("lastReconciledCount", lastReconciledCount);
+        status.put("batchSize", reconcileBatchSize);
+        status.put("pollDelaySeconds", reconcileDelaySeconds);
+        status.put("lastRun", lastReconcileRun);
+        return status;
+    }
+
     /**
      * Clean up stale transactions that have been retried too many times
      * or have been pending for too long
@@ -172,27 +301,11 @@ public class BlockchainEventListenerService {
         try {
             LOGGER.info("Running stale transaction cleanup");
 
-            List<BlockchainTransaction> pendingTxs = blockchainTransactionRepository.findByStatus("PENDING");
             Instant expirationTime = Instant.now().minus(RETRY_EXPIRATION_HOURS, TimeUnit.HOURS.toChronoUnit());
 
-            int cleanedUp = 0;
-            for (BlockchainTransaction tx : pendingTxs) {
-                // Mark as failed if too many retries or too old
-                if (tx.getRetryCount() >= MAX_RETRY_ATTEMPTS ||
-                        (tx.getCreatedAt() != null && tx.getCreatedAt().isBefore(expirationTime))) {
-
-                    tx.setStatus("FAILED");
-                    tx.setFailureReason("Transaction timed out or exceeded retry limit");
-                    blockchainTransactionRepository.save(tx);
-                    cleanedUp++;
-
-                    LOGGER.info("Marked stale transaction as failed: " + tx.getId() +
-                            " (retries: " + tx.getRetryCount() +
-                            ", age: " + (tx.getCreatedAt() != null ?
-                            java.time.Duration.between(tx.getCreatedAt(), Instant.now()).toHours() + " hours" :
-                            "unknown") + ")");
-                }
-            }
+            // Mark as failed if too many retries or too old, as a single conditional update
+            int cleanedUp = blockchainTransactionRepository.failStalePending(
+                    MAX_RETRY_ATTEMPTS, expirationTime, "Transaction timed out or exceeded retry limit");
 
             LOGGER.info("Cleaned up " + cleanedUp + " stale transactions");
         } catch (Exception e) {
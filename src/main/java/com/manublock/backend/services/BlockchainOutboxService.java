@@ -0,0 +1,499 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.models.BlockchainTransaction;
+import com.manublock.backend.repositories.BlockchainTransactionRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Transactional outbox for contract writes.
+ * Callers store the encoded call as a QUEUED blockchain_transactions row inside their own
+ * database transaction, so the business change and the intent to send it commit or roll back
+ * together. A pool of dispatcher workers claims due rows with SELECT ... FOR UPDATE SKIP LOCKED,
+ * submits them through the transaction pipeline and records the outcome on the row; retry state
+ * lives in the row, so nothing is lost when the process restarts. Each row carries the hash of
+ * its call data in a unique column while in flight, so duplicate submissions are one index probe.
+ */
+@Service
+public class BlockchainOutboxService {
+    private static final Logger LOGGER = Logger.getLogger(BlockchainOutboxService.class.getName());
+
+    static final String QUEUED = "QUEUED";
+    static final String DISPATCHING = "DISPATCHING";
+
+    private static final long RETRY_BASE_DELAY_MS = 2000;
+    private static final long RETRY_MAX_DELAY_MS = 30000;
+
+    private final BlockchainTransactionRepository transactionRepository;
+    private final TransactionPipelineService transactionPipeline;
+    private final GasLimitProfilerService gasLimitProfiler;
+    private final TransactionItemIndexService transactionItemIndex;
+    private final Web3j web3j;
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollIntervalMs;
+    private final long claimLeaseMs;
+    private final long settlementTimeoutMs;
+
+    // Callers in this process waiting on a row; rows enqueued before a restart just have no waiter
+    private final Map<Long, CompletableFuture<String>> waiters = new ConcurrentHashMap<>();
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final ExecutorService workerPool;
+    private final ScheduledExecutorService leaseReaper = Executors.newSingleThreadScheduledExecutor();
+    // Follows rows this process cannot settle itself, e.g. broadcast rows left to the receipt reconciler
+    private final ScheduledExecutorService settlementPoller = Executors.newSingleThreadScheduledExecutor();
+    private volatile boolean running;
+
+    @Autowired
+    public BlockchainOutboxService(
+            BlockchainTransactionRepository transactionRepository,
+            TransactionPipelineService transactionPipeline,
+            GasLimitProfilerService gasLimitProfiler,
+            TransactionItemIndexService transactionItemIndex,
+            Web3j web3j,
+            PlatformTransactionManager transactionManager,
+            @Value("${blockchain.outbox.workers:4}") int workers,
+            @Value("${blockchain.outbox.batch-size:10}") int batchSize,
+            @Value("${blockchain.outbox.max-attempts:4}") int maxAttempts,
+            @Value("${blockchain.outbox.poll-interval-ms:2000}") long pollIntervalMs,
+            @Value("${blockchain.outbox.claim-lease-ms:600000}") long claimLeaseMs,
+            @Value("${blockchain.outbox.settlement-timeout-ms:900000}") long settlementTimeoutMs) {
+        this.transactionRepository = transactionRepository;
+        this.transactionPipeline = transactionPipeline;
+        this.gasLimitProfiler = gasLimitProfiler;
+        this.transactionItemIndex = transactionItemIndex;
+        this.web3j = web3j;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollIntervalMs = pollIntervalMs;
+        this.claimLeaseMs = claimLeaseMs;
+        this.settlementTimeoutMs = settlementTimeoutMs;
+        this.workerPool = Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * Queues a contract call. When called inside a transaction the row is only dispatched
+     * once that transaction commits, and is dropped with it on rollback. If the same call
+     * is already in flight no new row is written and the existing one is followed instead.
+     * @param tx transaction record describing the call (function and parameters)
+     * @return future completed with the transaction hash once mined in this process
+     */
+    public CompletableFuture<String> enqueue(BlockchainTransaction tx, RemoteFunctionCall<TransactionReceipt> functionCall) {
+        return enqueue(tx, functionCall, List.of());
+    }
+
+    /**
+     * Queues a contract call that consumes source items, linking them to the transaction as well
+     */
+    public CompletableFuture<String> enqueue(BlockchainTransaction tx, RemoteFunctionCall<TransactionReceipt> functionCall,
+                                             List<Long> sourceItemIds) {
+        String callData = functionCall.encodeFunctionCall();
+        String key = idempotencyKey(callData);
+
+        Optional<BlockchainTransaction> inFlight = transactionRepository.findByIdempotencyKey(key);
+        if (inFlight.isPresent()) {
+            return follow(inFlight.get());
+        }
+
+        tx.setCallData(callData);
+        tx.setIdempotencyKey(key);
+        tx.setStatus(QUEUED);
+        tx.setNextAttemptAt(Instant.now());
+        if (tx.getCreatedAt() == null) {
+            tx.setCreatedAt(Instant.now());
+        }
+        if (tx.getRetryCount() == null) {
+            tx.setRetryCount(0);
+        }
+        tx.setArgumentsIndexed(true);
+        try {
+            transactionRepository.save(tx);
+        } catch (DataIntegrityViolationException e) {
+            // Lost an insert race for the same call. Inside a transaction the failed insert has
+            // already poisoned it, so let the caller's business write roll back as a duplicate.
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw new RuntimeException("Blockchain transaction " + tx.getFunction() + "(" +
+                        tx.getParameters() + ") is already in flight", e);
+            }
+            return transactionRepository.findByIdempotencyKey(key)
+                    .map(this::follow)
+                    .orElseThrow(() -> e);
+        }
+
+        // Same transaction as the row itself, so a timeline never sees one without the other
+        transactionItemIndex.linkItems(tx, sourceItemIds);
+
+        Long id = tx.getId();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        waiters.put(id, result);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        wake();
+                    } else {
+                        waiters.remove(id);
+                        result.completeExceptionally(
+                                new RuntimeException("Transaction " + id + " was rolled back before dispatch"));
+                    }
+                }
+            });
+        } else {
+            wake();
+        }
+        return result;
+    }
+
+    /**
+     * Deduplication key of a contract call: the call data already is a canonical encoding
+     * of the function and its arguments
+     */
+    public static String idempotencyKey(String callData) {
+        return Hash.sha3(callData);
+    }
+
+    /**
+     * Future for a call that is already in flight: shared with its original caller when that
+     * caller is in this process, otherwise completed from the row once it settles. A hash alone
+     * is not an outcome, since a broadcast transaction can still revert or never be mined.
+     */
+    private CompletableFuture<String> follow(BlockchainTransaction existing) {
+        LOGGER.info("Blockchain transaction " + existing.getFunction() + "(" + existing.getParameters() +
+                ") is already in flight as #" + existing.getId() + ", not sending it again");
+        if ("CONFIRMED".equals(existing.getStatus())) {
+            return CompletableFuture.completedFuture(existing.getTransactionHash());
+        }
+        if ("FAILED".equals(existing.getStatus())) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Transaction failed: " + existing.getFailureReason()));
+        }
+        // The row may belong to another instance's dispatcher, so never park on a future only
+        // this process's dispatcher would complete
+        return waiters.computeIfAbsent(existing.getId(), id -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            completeWhenSettled(id, future);
+            return future;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDispatchers() {
+        running = true;
+        requeueExpiredClaims();
+        for (int i = 0; i < workers; i++) {
+            workerPool.submit(this::runWorker);
+        }
+        leaseReaper.scheduleWithFixedDelay(this::requeueExpiredClaims, claimLeaseMs, claimLeaseMs / 2,
+                TimeUnit.MILLISECONDS);
+        LOGGER.info("Started " + workers + " blockchain outbox dispatchers");
+    }
+
+    /**
+     * Outbox depth by state, for monitoring
+     */
+    public Map<String, Object> getOutboxStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("queued", transactionRepository.countByStatus(QUEUED));
+        status.put("dispatching", transactionRepository.countByStatus(DISPATCHING));
+        status.put("workers", workers);
+        status.put("batchSize", batchSize);
+        status.put("localWaiters", waiters.size());
+        return status;
+    }
+
+    /**
+     * Claims a batch, submits it (nonces are pipelined, so the whole batch is in flight at once)
+     * and waits for every outcome to be recorded before claiming more
+     */
+    private void runWorker() {
+        while (running) {
+            try {
+                List<BlockchainTransaction> claimed = claimBatch();
+                if (claimed.isEmpty()) {
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+
+                List<CompletableFuture<Void>> outcomes = new ArrayList<>();
+                for (BlockchainTransaction tx : claimed) {
+                    outcomes.add(dispatch(tx));
+                }
+                CompletableFuture.allOf(outcomes.toArray(new CompletableFuture[0])).join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Outbox dispatch cycle failed", e);
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<BlockchainTransaction> claimBatch() {
+        List<BlockchainTransaction> claimed = transactionTemplate.execute(status -> {
+            List<BlockchainTransaction> due = transactionRepository.lockDueOutboxEntries(Instant.now(), batchSize);
+            Instant now = Instant.now();
+            for (BlockchainTransaction tx : due) {
+                tx.setStatus(DISPATCHING);
+                tx.setLastAttempt(now);
+            }
+            return transactionRepository.saveAll(due);
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    /**
+     * Submits one claimed row; the returned future always completes normally once the
+     * outcome is stored
+     */
+    private CompletableFuture<Void> dispatch(BlockchainTransaction tx) {
+        TransactionPipelineService.Submission submission =
+                transactionPipeline.submit(tx.getFunction(), tx.getCallData());
+
+        // Once broadcast the row is PENDING; the receipt reconciler only takes it over after the
+        // lease, i.e. when this process did not live to see the receipt
+        CompletableFuture<Void> broadcastRecorded = submission.getTransactionHash().thenAccept(hash -> {
+            tx.setTransactionHash(hash);
+            tx.setStatus("PENDING");
+            tx.setNextCheckAt(Instant.now().plusMillis(claimLeaseMs));
+            transactionRepository.save(tx);
+        });
+
+        return broadcastRecorded
+                .handle((ignored, ex) -> null)
+                .thenCompose(ignored -> submission.getReceipt())
+                .handle((receipt, ex) -> {
+                    try {
+                        if (ex == null) {
+                            recordConfirmed(tx, receipt);
+                        } else {
+                            recordFailure(tx, ex instanceof CompletionException && ex.getCause() != null
+                                    ? ex.getCause() : ex);
+                        }
+                    } catch (Exception e) {
+                        LOGGER.log(Level.SEVERE, "Failed to record outcome of outbox transaction " + tx.getId(), e);
+                    }
+                    return null;
+                });
+    }
+
+    private void recordConfirmed(BlockchainTransaction tx, TransactionReceipt receipt) {
+        tx.setTransactionHash(receipt.getTransactionHash());
+        tx.setStatus("CONFIRMED");
+        tx.setConfirmedAt(Instant.now());
+        tx.setFailureReason(null);
+        tx.setNextCheckAt(null);
+        tx.setGasUsed(receipt.getGasUsed() != null ? receipt.getGasUsed().longValue() : null);
+        tx.setGasProfileKey(gasLimitProfiler.profileKey(tx.getCallData()));
+        transactionRepository.save(tx);
+
+        CompletableFuture<String> waiter = waiters.remove(tx.getId());
+        if (waiter != null) {
+            waiter.complete(receipt.getTransactionHash());
+        }
+    }
+
+    private void recordFailure(BlockchainTransaction tx, Throwable failure) {
+        String message = failure.getMessage();
+
+        // A transaction that was mined and reverted would revert again; everything else is retried
+        boolean reverted = message != null && message.contains("reverted");
+        boolean broadcast = tx.getTransactionHash() != null && !tx.getTransactionHash().isEmpty();
+        // A failure that carries a receipt was mined, so its nonce is spent and a resend cannot duplicate it
+        boolean mined = failure instanceof TransactionException &&
+                ((TransactionException) failure).getTransactionReceipt().isPresent();
+
+        if (!reverted && !mined) {
+            Optional<TransactionReceipt> receipt = findReceiptOnChain(tx);
+            if (receipt.isPresent() && receipt.get().isStatusOK()) {
+                recordConfirmed(tx, receipt.get());
+                return;
+            }
+            if (receipt.isPresent()) {
+                reverted = true;
+                message = "Transaction " + tx.getTransactionHash() + " reverted with status: " + receipt.get().getStatus();
+            } else if (broadcast) {
+                leaveToReconciler(tx, message);
+                return;
+            }
+        }
+
+        int attempts = (tx.getRetryCount() != null ? tx.getRetryCount() : 0) + 1;
+        tx.setRetryCount(attempts);
+        tx.setFailureReason(message);
+        tx.setNextCheckAt(null);
+
+        if (reverted || attempts >= maxAttempts) {
+            LOGGER.warning("Outbox transaction " + tx.getId() + " (" + tx.getFunction() + ") failed after " +
+                    attempts + " attempt(s): " + message);
+            tx.setStatus("FAILED");
+            transactionRepository.save(tx);
+
+            CompletableFuture<String> waiter = waiters.remove(tx.getId());
+            if (waiter != null) {
+                waiter.completeExceptionally(new RuntimeException("Transaction failed: " + message, failure));
+            }
+            return;
+        }
+
+        long delay = retryDelayMillis(attempts - 1);
+        LOGGER.info("Outbox transaction " + tx.getId() + " (" + tx.getFunction() + ") failed: " + message +
+                ", retrying in " + delay + "ms");
+        tx.setStatus(QUEUED);
+        tx.setNextAttemptAt(Instant.now().plusMillis(delay));
+        transactionRepository.save(tx);
+    }
+
+    /**
+     * A broadcast transaction whose receipt could not be awaited may still be mined, and sending
+     * the call again would take a new nonce and could apply it twice. The row stays PENDING under
+     * its original hash for the receipt reconciler, and a local caller follows the row's outcome.
+     */
+    private void leaveToReconciler(BlockchainTransaction tx, String message) {
+        LOGGER.warning("Receipt of outbox transaction " + tx.getId() + " (" + tx.getTransactionHash() +
+                ") not available: " + message + "; leaving it to the receipt reconciler");
+        tx.setStatus("PENDING");
+        tx.setFailureReason(message);
+        tx.setNextCheckAt(Instant.now());
+        transactionRepository.save(tx);
+
+        CompletableFuture<String> waiter = waiters.get(tx.getId());
+        if (waiter != null) {
+            completeWhenSettled(tx.getId(), waiter);
+        }
+    }
+
+    /**
+     * Completes the future from the row's stored outcome once it is CONFIRMED or FAILED,
+     * checking every poll interval and failing after the settlement timeout
+     */
+    private void completeWhenSettled(Long id, CompletableFuture<String> future) {
+        future.whenComplete((hash, ex) -> waiters.remove(id, future));
+        long deadline = System.currentTimeMillis() + settlementTimeoutMs;
+        settlementPoller.schedule(() -> checkSettled(id, future, deadline), pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void checkSettled(Long id, CompletableFuture<String> future, long deadline) {
+        if (future.isDone()) {
+            return;
+        }
+        try {
+            Optional<BlockchainTransaction> row = transactionRepository.findById(id);
+            if (row.isEmpty()) {
+                future.completeExceptionally(new RuntimeException("Transaction " + id + " no longer exists"));
+                return;
+            }
+            if ("CONFIRMED".equals(row.get().getStatus())) {
+                future.complete(row.get().getTransactionHash());
+                return;
+            }
+            if ("FAILED".equals(row.get().getStatus())) {
+                future.completeExceptionally(
+                        new RuntimeException("Transaction failed: " + row.get().getFailureReason()));
+                return;
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to check outcome of outbox transaction " + id, e);
+        }
+
+        if (System.currentTimeMillis() >= deadline) {
+            future.completeExceptionally(new RuntimeException("Transaction " + id + " did not settle within " +
+                    settlementTimeoutMs + "ms"));
+            return;
+        }
+        settlementPoller.schedule(() -> checkSettled(id, future, deadline), pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Looks up a receipt for the hash already recorded on the transaction, if any
+     */
+    private Optional<TransactionReceipt> findReceiptOnChain(BlockchainTransaction tx) {
+        if (tx.getTransactionHash() == null || tx.getTransactionHash().isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return web3j.ethGetTransactionReceipt(tx.getTransactionHash()).send().getTransactionReceipt();
+        } catch (Exception e) {
+            LOGGER.warning("Error verifying transaction " + tx.getTransactionHash() + " on-chain: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void requeueExpiredClaims() {
+        try {
+            Integer requeued = transactionTemplate.execute(status -> transactionRepository.requeueExpiredClaims(
+                    Instant.now().minusMillis(claimLeaseMs), Instant.now()));
+            if (requeued != null && requeued > 0) {
+                LOGGER.warning("Requeued " + requeued + " outbox transactions whose dispatcher claim expired");
+                wake();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to requeue expired outbox claims", e);
+        }
+    }
+
+    private void wake() {
+        if (wakeUp.availablePermits() < workers) {
+            wakeUp.release();
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter, so retries from a burst of failures spread out
+     */
+    private long retryDelayMillis(int retryCount) {
+        long backoff = Math.min(RETRY_MAX_DELAY_MS, RETRY_BASE_DELAY_MS << Math.min(retryCount, 10));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        leaseReaper.shutdownNow();
+        settlementPoller.shutdownNow();
+        workerPool.shutdownNow();
+    }
+}
@@ -0,0 +1,221 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.models.BlockchainTransaction;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Moves settled history out of blockchain_transactions so the queries on the hot path (outbox
+ * claims, receipt checks, idempotency probes, listings) only scan recent rows.
+ *
+ * CONFIRMED rows of whole months older than the retention window are moved into
+ * blockchain_transactions_archive, which is range-partitioned by month on created_at; one
+ * partition is created per archived month. The live table itself stays unpartitioned because
+ * PostgreSQL can only enforce the idempotency key's unique constraint across partitions if it
+ * includes the partition key. Listings and exports only read archived rows when asked to.
+ */
+@Service
+public class BlockchainTransactionArchiveService {
+    private static final Logger LOGGER = Logger.getLogger(BlockchainTransactionArchiveService.class.getName());
+
+    private static final String LIVE_TABLE = "blockchain_transactions";
+    private static final String ARCHIVE_TABLE = "blockchain_transactions_archive";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Whole months of CONFIRMED rows kept in the live table besides the current one
+    @Value("${blockchain.archive.retention-months:3}")
+    private int retentionMonths;
+
+    @Value("${blockchain.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${blockchain.archive.interval-hours:24}")
+    private long intervalHours;
+
+    private ScheduledExecutorService archiver;
+
+    @Autowired
+    public BlockchainTransactionArchiveService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        archiver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "blockchain-tx-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        archiver.scheduleWithFixedDelay(this::archiveConfirmedTransactions, 1, intervalHours, TimeUnit.HOURS);
+    }
+
+    /**
+     * Moves CONFIRMED rows older than the retention window into their monthly archive partitions
+     * @return number of rows moved
+     */
+    public int archiveConfirmedTransactions() {
+        int moved = 0;
+        try {
+            ensureArchiveTable();
+            String columns = String.join(", ", syncArchiveColumns());
+
+            LocalDate cutoff = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).minusMonths(retentionMonths);
+            List<Timestamp> months = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT date_trunc('month', created_at AT TIME ZONE 'UTC') FROM " + LIVE_TABLE +
+                            " WHERE status = 'CONFIRMED' AND created_at < ? ORDER BY 1",
+                    Timestamp.class, toTimestamp(cutoff));
+
+            for (Timestamp month : months) {
+                LocalDate monthStart = month.toLocalDateTime().toLocalDate();
+                moved += archiveMonth(monthStart, columns);
+            }
+
+            if (moved > 0) {
+                LOGGER.info("Archived " + moved + " confirmed blockchain transactions older than " + cutoff);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Archiving confirmed blockchain transactions failed after " + moved + " rows", e);
+        }
+        return moved;
+    }
+
+    private int archiveMonth(LocalDate monthStart, String columns) {
+        LocalDate monthEnd = monthStart.plusMonths(1);
+        String partition = ARCHIVE_TABLE + "_" + monthStart.format(PARTITION_SUFFIX);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + ARCHIVE_TABLE +
+                " FOR VALUES FROM ('" + monthStart + " 00:00:00+00') TO ('" + monthEnd + " 00:00:00+00')");
+
+        // Delete and insert in one statement per batch, so a row is never in both tables or in neither
+        String moveBatch = "WITH moved AS (DELETE FROM " + LIVE_TABLE + " WHERE id IN (" +
+                "SELECT id FROM " + LIVE_TABLE + " WHERE status = 'CONFIRMED' AND created_at >= ? AND created_at < ? " +
+                "ORDER BY id LIMIT ?) RETURNING " + columns + ") " +
+                "INSERT INTO " + ARCHIVE_TABLE + " (" + columns + ") SELECT " + columns + " FROM moved";
+
+        int total = 0;
+        int batch;
+        do {
+            Integer count = transactionTemplate.execute(status -> jdbcTemplate.update(
+                    moveBatch, toTimestamp(monthStart), toTimestamp(monthEnd), batchSize));
+            batch = count != null ? count : 0;
+            total += batch;
+        } while (batch == batchSize);
+        return total;
+    }
+
+    /**
+     * Archived transactions linked to an item through transaction_items, oldest first
+     */
+    @SuppressWarnings("unchecked")
+    public List<BlockchainTransaction> findArchivedByLinkedItemId(Long itemId) {
+        if (!archiveExists()) {
+            return Collections.emptyList();
+        }
+        return entityManager.createNativeQuery(
+                        "SELECT DISTINCT a.* FROM " + ARCHIVE_TABLE + " a " +
+                                "JOIN transaction_items ti ON ti.transaction_id = a.id " +
+                                "WHERE ti.item_id = :itemId ORDER BY a.created_at, a.id",
+                        BlockchainTransaction.class)
+                .setParameter("itemId", itemId)
+                .getResultList();
+    }
+
+    /**
+     * Table expression over live and archived transactions with the live table's columns, for reads
+     * that cover the whole history; just the live table while nothing has been archived. Columns the
+     * archive has not gained yet read as null for archived rows.
+     */
+    public String liveAndArchivedSource() {
+        if (!archiveExists()) {
+            return LIVE_TABLE;
+        }
+        List<String> liveColumns = columnsOf(LIVE_TABLE);
+        Set<String> archiveColumns = new HashSet<>(columnsOf(ARCHIVE_TABLE));
+        String archived = liveColumns.stream()
+                .map(column -> archiveColumns.contains(column) ? column : "NULL AS " + column)
+                .collect(Collectors.joining(", "));
+
+        // One statement sees a row either before or after its move, never in both tables
+        return "(SELECT " + String.join(", ", liveColumns) + " FROM " + LIVE_TABLE +
+                " UNION ALL SELECT " + archived + " FROM " + ARCHIVE_TABLE + ")";
+    }
+
+    private boolean archiveExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, ARCHIVE_TABLE));
+    }
+
+    private void ensureArchiveTable() {
+        // Copies the live columns without constraints; the unique idempotency key is always null once settled
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + ARCHIVE_TABLE + " (LIKE " + LIVE_TABLE +
+                " INCLUDING DEFAULTS) PARTITION BY RANGE (created_at)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_blockchain_tx_archive_id ON " + ARCHIVE_TABLE + " (id)");
+    }
+
+    /**
+     * Adds columns the live table gained since the archive was created, and returns the live column list
+     */
+    private List<String> syncArchiveColumns() {
+        List<Map<String, Object>> missing = jdbcTemplate.queryForList(
+                "SELECT c.column_name, c.data_type FROM information_schema.columns c " +
+                        "WHERE c.table_schema = current_schema() AND c.table_name = ? AND NOT EXISTS (" +
+                        "SELECT 1 FROM information_schema.columns a WHERE a.table_schema = c.table_schema " +
+                        "AND a.table_name = ? AND a.column_name = c.column_name)",
+                LIVE_TABLE, ARCHIVE_TABLE);
+        for (Map<String, Object> column : missing) {
+            jdbcTemplate.execute("ALTER TABLE " + ARCHIVE_TABLE + " ADD COLUMN IF NOT EXISTS " +
+                    column.get("column_name") + " " + column.get("data_type"));
+        }
+
+        return columnsOf(LIVE_TABLE);
+    }
+
+    private List<String> columnsOf(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.columns WHERE table_schema = current_schema() " +
+                        "AND table_name = ? ORDER BY ordinal_position",
+                String.class, table);
+    }
+
+    private static Timestamp toTimestamp(LocalDate date) {
+        return Timestamp.from(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (archiver != null) {
+            archiver.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.manublock.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manublock.backend.models.BlockchainTransaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads over the ever-growing blockchain_transactions table that never load it whole:
+ * keyset pages ordered by (createdAt, id), and an NDJSON export that streams rows from a
+ * forward-only JDBC cursor so heap use stays flat however many rows match. Both read only the
+ * live table unless the filter asks for archived rows as well.
+ */
+@Service
+public class BlockchainTransactionQueryService {
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final BlockchainTransactionArchiveService archiveService;
+
+    @Autowired
+    public BlockchainTransactionQueryService(JdbcTemplate jdbcTemplate,
+                                             PlatformTransactionManager transactionManager,
+                                             ObjectMapper objectMapper,
+                                             BlockchainTransactionArchiveService archiveService) {
+        // Own template so the fetch size does not leak into other JdbcTemplate users
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.archiveService = archiveService;
+    }
+
+    /**
+     * One page of transactions after the cursor, oldest first
+     * @param cursor position returned with the previous page, or null for the first page
+     */
+    public TransactionPage findPage(TransactionFilter filter, String cursor, int limit) {
+        // One extra row tells whether there is a next page without a count query
+        List<BlockchainTransaction> rows = filter.isIncludeArchived()
+                ? findRowsWithArchive(filter, cursor, limit + 1)
+                : findLiveRows(filter, cursor, limit + 1);
+
+        boolean hasMore = rows.size() > limit;
+        List<BlockchainTransaction> page = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            BlockchainTransaction last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+        return new TransactionPage(new ArrayList<>(page), nextCursor);
+    }
+
+    private List<BlockchainTransaction> findLiveRows(TransactionFilter filter, String cursor, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BlockchainTransaction> query = cb.createQuery(BlockchainTransaction.class);
+        Root<BlockchainTransaction> tx = query.from(BlockchainTransaction.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(tx.get("status"), filter.getStatus()));
+        }
+        if (filter.getFunction() != null) {
+            predicates.add(cb.equal(tx.get("function"), filter.getFunction()));
+        }
+        if (filter.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(tx.<Instant>get("createdAt"), filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            predicates.add(cb.lessThan(tx.<Instant>get("createdAt"), filter.getTo()));
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            Position after = decodeCursor(cursor);
+            predicates.add(cb.or(
+                    cb.greaterThan(tx.<Instant>get("createdAt"), after.createdAt),
+                    cb.and(cb.equal(tx.get("createdAt"), after.createdAt),
+                            cb.greaterThan(tx.<Long>get("id"), after.id))));
+        }
+
+        query.select(tx)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(tx.get("createdAt")), cb.asc(tx.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Same page over the live and archived rows together; the union is only expressible in SQL
+     */
+    @SuppressWarnings("unchecked")
+    private List<BlockchainTransaction> findRowsWithArchive(TransactionFilter filter, String cursor, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM " + archiveService.liveAndArchivedSource() +
+                " t WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendFilter(filter, sql, args);
+        if (cursor != null && !cursor.isEmpty()) {
+            Position after = decodeCursor(cursor);
+            sql.append(" AND (created_at > ? OR (created_at = ? AND id > ?))");
+            args.add(Timestamp.from(after.createdAt));
+            args.add(Timestamp.from(after.createdAt));
+            args.add(after.id);
+        }
+        sql.append(" ORDER BY created_at, id");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), BlockchainTransaction.class);
+        for (int i = 0; i < args.size(); i++) {
+            query.setParameter(i + 1, args.get(i));
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Writes every matching transaction as one JSON object per line, oldest first
+     */
+    public void exportNdjson(TransactionFilter filter, OutputStream out) {
+        String source = filter.isIncludeArchived() ? archiveService.liveAndArchivedSource() : "blockchain_transactions";
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, function, status, transaction_hash, created_at, confirmed_at, parameters, " +
+                        "supply_chain_id, item_id, user_id, from_user_id, quantity, action_type, status_code, " +
+                        "failure_reason FROM " + source + " t WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendFilter(filter, sql, args);
+        sql.append(" ORDER BY created_at, id");
+
+        // PostgreSQL only uses a cursor (instead of buffering the whole result) inside a transaction
+        readOnlyTransaction.executeWithoutResult(status ->
+                jdbcTemplate.query(sql.toString(), rs -> {
+                    try {
+                        objectMapper.writeValue(new NonClosingOutputStream(out), toExportRow(rs));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, args.toArray()));
+    }
+
+    private static void appendFilter(TransactionFilter filter, StringBuilder sql, List<Object> args) {
+        if (filter.getStatus() != null) {
+            sql.append(" AND status = ?");
+            args.add(filter.getStatus());
+        }
+        if (filter.getFunction() != null) {
+            sql.append(" AND function = ?");
+            args.add(filter.getFunction());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.from(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.from(filter.getTo()));
+        }
+    }
+
+    private static Map<String, Object> toExportRow(ResultSet rs) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", rs.getLong("id"));
+        row.put("function", rs.getString("function"));
+        row.put("status", rs.getString("status"));
+        row.put("txHash", rs.getString("transaction_hash"));
+        row.put("createdAt", toInstant(rs.getTimestamp("created_at")));
+        row.put("confirmedAt", toInstant(rs.getTimestamp("confirmed_at")));
+        row.put("rawParameters", rs.getString("parameters"));
+        row.put("supplyChainId", rs.getObject("supply_chain_id"));
+        row.put("itemId", rs.getObject("item_id"));
+        row.put("userId", rs.getObject("user_id"));
+        row.put("fromUserId", rs.getObject("from_user_id"));
+        row.put("quantity", rs.getObject("quantity"));
+        row.put("actionType", rs.getString("action_type"));
+        row.put("statusCode", rs.getObject("status_code"));
+        row.put("failureReason", rs.getString("failure_reason"));
+        return row;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    private static String encodeCursor(Instant createdAt, Long id) {
+        String position = createdAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = position.lastIndexOf(',');
+            return new Position(Instant.parse(position.substring(0, comma)), Long.parseLong(position.substring(comma + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static class Position {
+        private final Instant createdAt;
+        private final Long id;
+
+        Position(Instant createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Jackson closes the stream it writes to by default; the export writes many values to one stream
+     */
+    private static class NonClosingOutputStream extends java.io.FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Optional filters shared by the paged listing and the export
+     */
+    public static class TransactionFilter {
+        private final String status;
+        private final String function;
+        private final Instant from;
+        private final Instant to;
+        private final boolean includeArchived;
+
+        /**
+         * @param includeArchived also read the confirmed rows moved to blockchain_transactions_archive
+         */
+        public TransactionFilter(String status, String function, Instant from, Instant to, boolean includeArchived) {
+            this.status = status;
+            this.function = function;
+            this.from = from;
+            this.to = to;
+            this.includeArchived = includeArchived;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getFunction() {
+            return function;
+        }
+
+        public Instant getFrom() {
+            return from;
+        }
+
+        public Instant getTo() {
+            return to;
+        }
+
+        public boolean isIncludeArchived() {
+            return includeArchived;
+        }
+    }
+
+    public static class TransactionPage {
+        private final List<BlockchainTransaction> transactions;
+        private final String nextCursor;
+
+        TransactionPage(List<BlockchainTransaction> transactions, String nextCursor) {
+            this.transactions = transactions;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<BlockchainTransaction> getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * Cursor of the next page, or null on the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+}
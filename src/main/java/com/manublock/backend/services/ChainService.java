@@ -1,6 +1,7 @@
 package com.manublock.backend.services;
 
 import com.manublock.backend.dto.ChainResponseDTO;
+import com.manublock.backend.dto.ChainSummaryDTO;
 import com.manublock.backend.dto.EdgeResponseDTO;
 import com.manublock.backend.dto.NodeResponseDTO;
 import com.manublock.backend.models.Chains;
@@ -13,6 +14,8 @@ import com.manublock.backend.repositories.NodeRepository;
 import com.manublock.backend.repositories.UserRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -40,15 +43,24 @@ public class ChainService {
     @Autowired
     private BlockchainService blockchainService;
 
+    @Autowired
+    private SupplyChainGraphCache graphCache;
+
     /**
      * Creates a new supply chain in the database and registers it on the blockchain
      * Using a random blockchain ID to avoid ID conflicts
      */
+    @Transactional
     public Chains createSupplyChain(String name, String description, Long userId) {
         Users user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
 
-        // Create a new supply chain with initial blockchain status as PENDING
+        // Generate a unique random blockchain ID
+        Long blockchainId = generateUniqueBlockchainId();
+
+        // Create a new supply chain with initial blockchain status as PENDING. The blockchain ID
+        // is stored up front, so the chain is still confirmed from its on-chain event when the
+        // registration completes after a restart.
         Chains chain = new Chains();
         chain.setName(name);
         chain.setDescription(description);
@@ -58,15 +70,13 @@ public class ChainService {
         chain.setNodes(new ArrayList<>());
         chain.setEdges(new ArrayList<>());
         chain.setBlockchainStatus("PENDING");
+        chain.setBlockchainId(blockchainId);
 
         // Save to database first
         Chains savedChain = chainRepository.save(chain);
         LOGGER.info("Created supply chain in database with ID: " + savedChain.getId());
 
-        // Generate a unique random blockchain ID
-        Long blockchainId = generateUniqueBlockchainId();
-
-        // Async blockchain registration with random ID
+        // Queued in this transaction, sent once the chain is committed
         registerSupplyChainOnBlockchainWithRandomId(savedChain, blockchainId);
 
         return savedChain;
@@ -89,73 +99,72 @@ public class ChainService {
      * instead of trying to use the database ID
      */
     private void registerSupplyChainOnBlockchainWithRandomId(Chains chain, Long blockchainId) {
-        try {
-            if (blockchainService != null) {
-                LOGGER.info("Attempting blockchain registration for chain " + chain.getId() +
-                        " with blockchain ID " + blockchainId);
-
-                CompletableFuture<String> future = blockchainService.createSupplyChain(blockchainId, chain.getCreatedBy().getId());
-
-                future.thenAccept(txHash -> {
-                    try {
-                        // Store both IDs in the database to maintain the mapping
-                        chain.setBlockchainTxHash(txHash);
-                        chain.setBlockchainStatus("CONFIRMED");
-                        chain.setBlockchainId(blockchainId); // Store the blockchain ID
-                        chainRepository.save(chain);
-                        LOGGER.info("Supply chain " + chain.getId() + " successfully registered on blockchain with ID: " +
-                                blockchainId + ", txHash: " + txHash);
-                    } catch (Exception e) {
-                        LOGGER.log(Level.SEVERE, "Error updating blockchain status for chain " + chain.getId(), e);
-                    }
-                }).exceptionally(ex -> {
-                    try {
-                        // Mark as failed if blockchain transaction fails
-                        LOGGER.log(Level.SEVERE, "Blockchain transaction failed for chain " + chain.getId(), ex);
-                        chain.setBlockchainStatus("FAILED");
-                        chain.setBlockchainTxHash(null);
-                        chainRepository.save(chain);
-                    } catch (Exception e) {
-                        LOGGER.log(Level.SEVERE, "Error updating blockchain failure status for chain " + chain.getId(), e);
+        Long chainId = chain.getId();
+        if (blockchainService == null) {
+            LOGGER.warning("BlockchainService not available - unable to register chain " + chainId);
+            return;
+        }
+
+        LOGGER.info("Attempting blockchain registration for chain " + chainId +
+                " with blockchain ID " + blockchainId);
+
+        CompletableFuture<String> future = blockchainService.createSupplyChain(blockchainId, chain.getCreatedBy().getId());
+
+        // The outcome arrives long after this transaction, so it is written to a freshly read row
+        future.thenAccept(txHash -> {
+            try {
+                chainRepository.findById(chainId).ifPresent(current -> {
+                    if ("FINALIZED".equals(current.getBlockchainStatus())) {
+                        return;
                     }
-                    return null;
+                    current.setBlockchainTxHash(txHash);
+                    current.setBlockchainStatus("CONFIRMED");
+                    chainRepository.save(current);
                 });
-            } else {
-                LOGGER.warning("BlockchainService not available - unable to register chain " + chain.getId());
-                chain.setBlockchainStatus("PENDING");
-                chainRepository.save(chain);
+                LOGGER.info("Supply chain " + chainId + " successfully registered on blockchain with ID: " +
+                        blockchainId + ", txHash: " + txHash);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Error updating blockchain status for chain " + chainId, e);
             }
-        } catch (Exception e) {
-            // Log the error but don't prevent chain creation
-            LOGGER.log(Level.SEVERE, "Error with blockchain integration for chain " + chain.getId(), e);
-            chain.setBlockchainStatus("FAILED");
-            chainRepository.save(chain);
-        }
+        }).exceptionally(ex -> {
+            try {
+                // Only reached once the outbox has given up on the transaction
+                LOGGER.log(Level.SEVERE, "Blockchain transaction failed for chain " + chainId, ex);
+                chainRepository.findById(chainId).ifPresent(current -> {
+                    current.setBlockchainStatus("FAILED");
+                    current.setBlockchainTxHash(null);
+                    chainRepository.save(current);
+                });
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Error updating blockchain failure status for chain " + chainId, e);
+            }
+            return null;
+        });
     }
 
     /**
      * Get all supply chains with their blockchain status
      */
+    @Transactional
     public List<ChainResponseDTO> getAllSupplyChains() {
-        return chainRepository.findAll().stream()
-                .map(chain -> new ChainResponseDTO(
-                        chain.getId(),
-                        chain.getName(),
-                        chain.getDescription(),
-                        chain.getCreatedBy(),
-                        chain.getNodes().stream()
-                                .map(NodeResponseDTO::new)
-                                .collect(Collectors.toList()),
-                        chain.getEdges().stream()
-                                .map(EdgeResponseDTO::new)
-                                .collect(Collectors.toList()),
-                        chain.getCreatedAt() != null ? chain.getCreatedAt().toInstant() : null,
-                        chain.getUpdatedAt() != null ? chain.getUpdatedAt().toInstant() : null,
-                        chain.getBlockchainStatus(),
-                        chain.getBlockchainTxHash(),
-                        chain.getBlockchainId()
-                ))
-                .collect(Collectors.toList());
+        return getSupplyChainPage(0L, 0);
+    }
+
+    /**
+     * Supply chains with an id above afterId, in id order, with nodes and edges loaded in bulk
+     * @param limit maximum number of chains, or 0 for all
+     */
+    @Transactional
+    public List<ChainResponseDTO> getSupplyChainPage(Long afterId, int limit) {
+        return toResponses(chainRepository.findPageAfter(afterId, pageOf(limit)));
+    }
+
+    /**
+     * Supply chain summaries with node and edge counts instead of the full graph
+     * @param limit maximum number of chains, or 0 for all
+     */
+    public List<ChainSummaryDTO> getSupplyChainSummaries(Long afterId, int limit) {
+        return chainRepository.findSummariesAfter(afterId, pageOf(limit));
     }
 
     /**
@@ -214,6 +223,7 @@ public class ChainService {
         nodeRepository.deleteAll(chain.getNodes());
         edgeRepository.deleteAll(chain.getEdges());
         chainRepository.delete(chain);
+        graphCache.evict(id);
         LOGGER.info("Deleted supply chain with ID: " + id);
     }
 
@@ -230,6 +240,17 @@ public class ChainService {
         LOGGER.info("Updated blockchain status for chain " + chainId + " to CONFIRMED with hash: " + txHash);
     }
 
+    /**
+     * Marks a chain as confirmed, looked up by the ID it was registered with on-chain
+     */
+    @Transactional
+    public void updateBlockchainInfoByBlockchainId(Long blockchainId, String txHash) {
+        Chains chain = chainRepository.findByBlockchainId(blockchainId)
+                .orElseThrow(() -> new RuntimeException("Supply Chain not found for blockchain ID: " + blockchainId));
+
+        updateBlockchainInfo(chain.getId(), txHash);
+    }
+
     public Map<String, Object> getBlockchainStatus(Long chainId) {
         Chains chain = chainRepository.findById(chainId)
                 .orElseThrow(() -> new RuntimeException("Supply Chain not found"));
@@ -245,16 +266,51 @@ public class ChainService {
         return status;
     }
 
+    @Transactional
     public List<ChainResponseDTO> findSupplyChainsByUserId(Long userId) {
-        List<Chains> userChains = chainRepository.findChainsByAssignedUser(userId);
+        return findSupplyChainPageByUserId(userId, 0L, 0);
+    }
 
-        return userChains.stream().map(chain -> new ChainResponseDTO(
+    /**
+     * Supply chains with a node assigned to the user, paged like {@link #getSupplyChainPage}
+     */
+    @Transactional
+    public List<ChainResponseDTO> findSupplyChainPageByUserId(Long userId, Long afterId, int limit) {
+        return toResponses(chainRepository.findPageByAssignedUserAfter(userId, afterId, pageOf(limit)));
+    }
+
+    public List<ChainSummaryDTO> findSupplyChainSummariesByUserId(Long userId, Long afterId, int limit) {
+        return chainRepository.findSummariesByAssignedUserAfter(userId, afterId, pageOf(limit));
+    }
+
+    /**
+     * Builds the responses of many chains with one query for all their nodes and one for all their edges,
+     * instead of initializing the lazy collections chain by chain
+     */
+    private List<ChainResponseDTO> toResponses(List<Chains> chains) {
+        if (chains.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> chainIds = chains.stream().map(Chains::getId).collect(Collectors.toList());
+
+        Map<Long, List<NodeResponseDTO>> nodesByChain = new HashMap<>();
+        for (Nodes node : nodeRepository.findWithUserBySupplyChainIdIn(chainIds)) {
+            nodesByChain.computeIfAbsent(node.getSupplyChain().getId(), id -> new ArrayList<>())
+                    .add(new NodeResponseDTO(node));
+        }
+        Map<Long, List<EdgeResponseDTO>> edgesByChain = new HashMap<>();
+        for (Edges edge : edgeRepository.findWithNodesBySupplyChainIdIn(chainIds)) {
+            edgesByChain.computeIfAbsent(edge.getSupplyChain().getId(), id -> new ArrayList<>())
+                    .add(new EdgeResponseDTO(edge));
+        }
+
+        return chains.stream().map(chain -> new ChainResponseDTO(
                 chain.getId(),
                 chain.getName(),
                 chain.getDescription(),
                 chain.getCreatedBy(),
-                chain.getNodes().stream().map(NodeResponseDTO::new).collect(Collectors.toList()),
-                chain.getEdges().stream().map(EdgeResponseDTO::new).collect(Collectors.toList()),
+                nodesByChain.getOrDefault(chain.getId(), new ArrayList<>()),
+                edgesByChain.getOrDefault(chain.getId(), new ArrayList<>()),
                 chain.getCreatedAt() != null ? chain.getCreatedAt().toInstant() : null,
                 chain.getUpdatedAt() != null ? chain.getUpdatedAt().toInstant() : null,
                 chain.getBlockchainStatus(),
@@ -262,4 +318,8 @@ public class ChainService {
                 chain.getBlockchainId()
         )).collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    private static Pageable pageOf(int limit) {
+        return limit > 0 ? PageRequest.of(0, limit) : Pageable.unpaged();
+    }
+}
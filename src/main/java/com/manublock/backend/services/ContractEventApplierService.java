@@ -0,0 +1,387 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.contracts.contract.SmartContract;
+import com.manublock.backend.models.*;
+import com.manublock.backend.repositories.*;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.core.methods.response.BaseEventResponse;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Applies decoded SmartContract events to the local Items, Chains and
+ * BlockchainTransaction tables, one JPA transaction per batch of logs
+ */
+@Service
+public class ContractEventApplierService {
+    private static final Logger LOGGER = Logger.getLogger(ContractEventApplierService.class.getName());
+
+    static final String ITEM_CREATED_TOPIC = EventEncoder.encode(SmartContract.ITEMCREATED_EVENT);
+    static final String ITEM_TRANSFERRED_TOPIC = EventEncoder.encode(SmartContract.ITEMTRANSFERRED_EVENT);
+    static final String ITEM_PROCESSED_TOPIC = EventEncoder.encode(SmartContract.ITEMPROCESSED_EVENT);
+    static final String ITEM_STATUS_UPDATED_TOPIC = EventEncoder.encode(SmartContract.ITEMSTATUSUPDATED_EVENT);
+    static final String SUPPLY_CHAIN_CREATED_TOPIC = EventEncoder.encode(SmartContract.SUPPLYCHAINCREATED_EVENT);
+    static final String PARTICIPANT_AUTHORIZED_TOPIC = EventEncoder.encode(SmartContract.PARTICIPANTAUTHORIZED_EVENT);
+
+    /**
+     * Event signatures the indexer asks eth_getLogs for
+     */
+    public static final List<String> INDEXED_EVENT_TOPICS = List.of(
+            ITEM_CREATED_TOPIC,
+            ITEM_TRANSFERRED_TOPIC,
+            ITEM_PROCESSED_TOPIC,
+            ITEM_STATUS_UPDATED_TOPIC,
+            SUPPLY_CHAIN_CREATED_TOPIC,
+            PARTICIPANT_AUTHORIZED_TOPIC);
+
+    /**
+     * Item statuses that ItemService.updateItemStatus writes to the chain, indexed by contract ItemStatus value
+     */
+    private static final List<String> MIRRORED_STATUSES =
+            List.of("CREATED", "IN_TRANSIT", "PROCESSING", "COMPLETED", "REJECTED");
+
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final ChainRepository chainRepository;
+    private final BlockchainTransactionRepository transactionRepository;
+    private final IndexerCheckpointRepository checkpointRepository;
+    private final AuthorizationCacheService authorizationCache;
+    private final ItemLineageService itemLineageService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ContractEventApplierService(
+            ItemRepository itemRepository,
+            UserRepository userRepository,
+            ChainRepository chainRepository,
+            BlockchainTransactionRepository transactionRepository,
+            IndexerCheckpointRepository checkpointRepository,
+            AuthorizationCacheService authorizationCache,
+            ItemLineageService itemLineageService,
+            JdbcTemplate jdbcTemplate) {
+        this.itemRepository = itemRepository;
+        this.userRepository = userRepository;
+        this.chainRepository = chainRepository;
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.authorizationCache = authorizationCache;
+        this.itemLineageService = itemLineageService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Applies the given logs in block and log-index order and advances the checkpoint
+     * to toBlock in the same transaction, so a crash never skips or half-applies a range
+     * @return number of events applied
+     */
+    @Transactional
+    public int applyLogs(List<Log> logs, String checkpointName, long toBlock) {
+        List<BaseEventResponse> events = logs.stream()
+                .sorted(Comparator.comparing(Log::getBlockNumber).thenComparing(Log::getLogIndex))
+                .map(this::decode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        EventBatch batch = loadBatch(events);
+        for (BaseEventResponse event : events) {
+            apply(event, batch);
+        }
+
+        insertNewItems(batch.newItems.values());
+        batch.dirtyItems.keySet().removeAll(batch.newItems.keySet());
+        itemRepository.saveAll(batch.dirtyItems.values());
+        chainRepository.saveAll(batch.dirtyChains.values());
+        transactionRepository.saveAll(batch.dirtyTransactions.values());
+
+        IndexerCheckpoint checkpoint = checkpointRepository.findById(checkpointName)
+                .orElseGet(() -> new IndexerCheckpoint(checkpointName, toBlock));
+        checkpoint.setLastProcessedBlock(toBlock);
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+
+        return events.size();
+    }
+
+    /**
+     * Inserts items first seen in this batch with one JDBC batch per table. The live indexer
+     * and a backfill can apply the same event at once, so an id that already exists is skipped
+     * rather than failing the whole batch, and only the rows actually inserted get parent links.
+     */
+    private void insertNewItems(Collection<Items> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<Items> rows = new ArrayList<>(items);
+        List<Object[]> itemArgs = new ArrayList<>(rows.size());
+        for (Items item : rows) {
+            itemArgs.add(new Object[]{
+                    item.getId(), item.getName(), item.getItemType(), item.getQuantity(),
+                    item.getOwner().getId(), item.getSupplyChain().getId(), item.getStatus(),
+                    item.getBlockchainTxHash(), item.getBlockchainStatus(),
+                    toTimestamp(item.getCreatedAt()), toTimestamp(item.getUpdatedAt())});
+        }
+        int[] inserted = jdbcTemplate.batchUpdate(
+                "INSERT INTO items (id, name, item_type, quantity, owner_id, supply_chain_id, status, " +
+                        "blockchain_tx_hash, blockchain_status, created_at, updated_at, row_version) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1) ON CONFLICT (id) DO NOTHING",
+                itemArgs);
+
+        List<Object[]> parentArgs = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            List<Long> parents = rows.get(i).getParentItemIds();
+            if (inserted[i] != 0 && parents != null) {
+                for (Long parentId : parents) {
+                    parentArgs.add(new Object[]{rows.get(i).getId(), parentId});
+                }
+            }
+        }
+        if (!parentArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO item_parents (item_id, parent_id) VALUES (?, ?)", parentArgs);
+        }
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+
+    private BaseEventResponse decode(Log log) {
+        if (log.getTopics() == null || log.getTopics().isEmpty()) {
+            return null;
+        }
+
+        String topic = log.getTopics().get(0);
+        if (ITEM_CREATED_TOPIC.equals(topic)) {
+            return SmartContract.getItemCreatedEventFromLog(log);
+        } else if (ITEM_TRANSFERRED_TOPIC.equals(topic)) {
+            return SmartContract.getItemTransferredEventFromLog(log);
+        } else if (ITEM_PROCESSED_TOPIC.equals(topic)) {
+            return SmartContract.getItemProcessedEventFromLog(log);
+        } else if (ITEM_STATUS_UPDATED_TOPIC.equals(topic)) {
+            return SmartContract.getItemStatusUpdatedEventFromLog(log);
+        } else if (SUPPLY_CHAIN_CREATED_TOPIC.equals(topic)) {
+            return SmartContract.getSupplyChainCreatedEventFromLog(log);
+        } else if (PARTICIPANT_AUTHORIZED_TOPIC.equals(topic)) {
+            return SmartContract.getParticipantAuthorizedEventFromLog(log);
+        }
+        return null;
+    }
+
+    /**
+     * Loads every row the events touch with one query per table
+     */
+    private EventBatch loadBatch(List<BaseEventResponse> events) {
+        Set<Long> itemIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> chainIds = new HashSet<>();
+        Set<String> txHashes = new HashSet<>();
+
+        for (BaseEventResponse event : events) {
+            txHashes.add(event.log.getTransactionHash());
+
+            if (event instanceof SmartContract.ItemCreatedEventResponse created) {
+                itemIds.add(created.itemId.longValue());
+                userIds.add(created.creatorId.longValue());
+                chainIds.add(created.supplyChainId.longValue());
+            } else if (event instanceof SmartContract.ItemTransferredEventResponse transferred) {
+                itemIds.add(transferred.itemId.longValue());
+                userIds.add(transferred.toUserId.longValue());
+            } else if (event instanceof SmartContract.ItemProcessedEventResponse processed) {
+                itemIds.add(processed.newItemId.longValue());
+                processed.sourceItemIds.forEach(id -> itemIds.add(id.longValue()));
+                userIds.add(processed.processorId.longValue());
+            } else if (event instanceof SmartContract.ItemStatusUpdatedEventResponse statusUpdated) {
+                itemIds.add(statusUpdated.itemId.longValue());
+            } else if (event instanceof SmartContract.SupplyChainCreatedEventResponse chainCreated) {
+                chainIds.add(chainCreated.supplyChainId.longValue());
+            }
+        }
+
+        EventBatch batch = new EventBatch();
+        itemRepository.findAllById(itemIds).forEach(item -> batch.items.put(item.getId(), item));
+        userRepository.findAllById(userIds).forEach(user -> batch.users.put(user.getId(), user));
+        if (!chainIds.isEmpty()) {
+            chainRepository.findByBlockchainIdIn(chainIds)
+                    .forEach(chain -> batch.chainsByBlockchainId.put(chain.getBlockchainId(), chain));
+        }
+        if (!txHashes.isEmpty()) {
+            transactionRepository.findByTransactionHashIn(txHashes)
+                    .forEach(tx -> batch.transactionsByHash
+                            .computeIfAbsent(tx.getTransactionHash(), hash -> new ArrayList<>())
+                            .add(tx));
+        }
+        return batch;
+    }
+
+    private void apply(BaseEventResponse event, EventBatch batch) {
+        String txHash = event.log.getTransactionHash();
+
+        if (event instanceof SmartContract.ItemCreatedEventResponse created) {
+            applyItemCreated(created, txHash, batch);
+        } else if (event instanceof SmartContract.ItemTransferredEventResponse transferred) {
+            applyItemTransferred(transferred, txHash, batch);
+        } else if (event instanceof SmartContract.ItemProcessedEventResponse processed) {
+            applyItemProcessed(processed, txHash, batch);
+        } else if (event instanceof SmartContract.ItemStatusUpdatedEventResponse statusUpdated) {
+            applyItemStatusUpdated(statusUpdated, txHash, batch);
+        } else if (event instanceof SmartContract.SupplyChainCreatedEventResponse chainCreated) {
+            applySupplyChainCreated(chainCreated, txHash, batch);
+        } else if (event instanceof SmartContract.ParticipantAuthorizedEventResponse authorized) {
+            // Authorizations are never revoked on chain, so the event alone settles the cache entry
+            authorizationCache.markAuthorized(authorized.supplyChainId.longValue(), authorized.participantId.longValue());
+        }
+
+        // Whatever emitted the event was mined, so its local transaction record is confirmed
+        for (BlockchainTransaction tx : batch.transactionsByHash.getOrDefault(txHash, List.of())) {
+            if (!"CONFIRMED".equals(tx.getStatus())) {
+                tx.setStatus("CONFIRMED");
+                tx.setConfirmedAt(Instant.now());
+                tx.setFailureReason(null);
+                batch.dirtyTransactions.put(tx.getId(), tx);
+            }
+        }
+    }
+
+    private void applyItemCreated(SmartContract.ItemCreatedEventResponse event, String txHash, EventBatch batch) {
+        Long itemId = event.itemId.longValue();
+        Items item = batch.items.get(itemId);
+
+        if (item == null) {
+            Users creator = batch.users.get(event.creatorId.longValue());
+            Chains chain = batch.chainsByBlockchainId.get(event.supplyChainId.longValue());
+            if (creator == null || chain == null) {
+                LOGGER.fine("Skipping ItemCreated for item " + itemId + ": creator or supply chain not found locally");
+                return;
+            }
+
+            item = new Items();
+            item.setId(itemId);
+            item.setName(event.itemType); // Default name based on type
+            item.setItemType(event.itemType);
+            item.setQuantity(event.quantity.longValue());
+            item.setOwner(creator);
+            item.setSupplyChain(chain);
+            item.setStatus("CREATED");
+            item.setParentItemIds(new ArrayList<>());
+            item.setCreatedAt(new Date());
+            batch.items.put(itemId, item);
+            batch.newItems.put(itemId, item);
+        }
+
+        markConfirmed(item, txHash, batch);
+    }
+
+    private void applyItemTransferred(SmartContract.ItemTransferredEventResponse event, String txHash, EventBatch batch) {
+        Items item = batch.items.get(event.itemId.longValue());
+        Users newOwner = batch.users.get(event.toUserId.longValue());
+        if (item == null || newOwner == null) {
+            return;
+        }
+
+        // Only a full transfer moves the item. A partial one leaves the sender's item with the rest
+        // and gives the recipient a new item, which the write path creates under the same hash.
+        boolean fullQuantity = item.getQuantity() != null &&
+                event.quantity.equals(BigInteger.valueOf(item.getQuantity()));
+        boolean fromOwner = item.getOwner() != null &&
+                event.fromUserId.equals(BigInteger.valueOf(item.getOwner().getId()));
+        if (fullQuantity && fromOwner && !itemRepository.existsByBlockchainTxHashAndIdNot(txHash, item.getId())) {
+            item.setOwner(newOwner);
+        }
+        markConfirmed(item, txHash, batch);
+    }
+
+    private void applyItemProcessed(SmartContract.ItemProcessedEventResponse event, String txHash, EventBatch batch) {
+        Long newItemId = event.newItemId.longValue();
+        List<Long> sourceIds = event.sourceItemIds.stream()
+                .map(BigInteger::longValue)
+                .collect(Collectors.toList());
+
+        Items item = batch.items.get(newItemId);
+        if (item == null) {
+            // Only known from this event: take the chain from the first source item
+            Users processor = batch.users.get(event.processorId.longValue());
+            Items firstSource = sourceIds.isEmpty() ? null : batch.items.get(sourceIds.get(0));
+            if (processor == null || firstSource == null) {
+                LOGGER.fine("Skipping ItemProcessed for item " + newItemId + ": processor or source item not found locally");
+                return;
+            }
+
+            item = new Items();
+            item.setId(newItemId);
+            item.setName("processed");
+            item.setItemType("processed");
+            item.setQuantity(0L);
+            item.setOwner(processor);
+            item.setSupplyChain(firstSource.getSupplyChain());
+            item.setStatus("PROCESSING");
+            item.setCreatedAt(new Date());
+            batch.items.put(newItemId, item);
+            batch.newItems.put(newItemId, item);
+        }
+
+        if (item.getParentItemIds() == null || item.getParentItemIds().isEmpty()) {
+            item.setParentItemIds(new ArrayList<>(sourceIds));
+            itemLineageService.linksAdded(newItemId, sourceIds);
+        }
+        markConfirmed(item, txHash, batch);
+    }
+
+    private void applyItemStatusUpdated(SmartContract.ItemStatusUpdatedEventResponse event, String txHash, EventBatch batch) {
+        Items item = batch.items.get(event.itemId.longValue());
+        if (item == null) {
+            return;
+        }
+
+        // Code 4 also stands for local workflow states such as CHURNED, so only statuses that the
+        // app itself mirrors to the chain follow the event; others keep their local name
+        int status = event.status.intValue();
+        if (MIRRORED_STATUSES.contains(item.getStatus()) && status < MIRRORED_STATUSES.size()) {
+            item.setStatus(MIRRORED_STATUSES.get(status));
+        }
+        markConfirmed(item, txHash, batch);
+    }
+
+    private void applySupplyChainCreated(SmartContract.SupplyChainCreatedEventResponse event, String txHash, EventBatch batch) {
+        Chains chain = batch.chainsByBlockchainId.get(event.supplyChainId.longValue());
+        if (chain == null || "CONFIRMED".equals(chain.getBlockchainStatus()) ||
+                "FINALIZED".equals(chain.getBlockchainStatus())) {
+            return;
+        }
+
+        chain.setBlockchainStatus("CONFIRMED");
+        chain.setBlockchainTxHash(txHash);
+        chain.setUpdatedAt(new Date());
+        batch.dirtyChains.put(chain.getId(), chain);
+    }
+
+    private void markConfirmed(Items item, String txHash, EventBatch batch) {
+        item.setBlockchainStatus("CONFIRMED");
+        item.setBlockchainTxHash(txHash);
+        item.setUpdatedAt(new Date());
+        batch.dirtyItems.put(item.getId(), item);
+    }
+
+    /**
+     * Rows loaded for one batch of events, plus the ones changed while applying them
+     */
+    private static class EventBatch {
+        private final Map<Long, Items> items = new HashMap<>();
+        private final Map<Long, Users> users = new HashMap<>();
+        private final Map<Long, Chains> chainsByBlockchainId = new HashMap<>();
+        private final Map<String, List<BlockchainTransaction>> transactionsByHash = new HashMap<>();
+
+        private final Map<Long, Items> newItems = new LinkedHashMap<>();
+        private final Map<Long, Items> dirtyItems = new LinkedHashMap<>();
+        private final Map<Long, Chains> dirtyChains = new LinkedHashMap<>();
+        private final Map<Long, BlockchainTransaction> dirtyTransactions = new LinkedHashMap<>();
+    }
+}
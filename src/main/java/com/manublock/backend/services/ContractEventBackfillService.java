@@ -0,0 +1,238 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.models.IndexerCheckpoint;
+import com.manublock.backend.repositories.IndexerCheckpointRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Rebuilds items and item_parents from the contract's event history.
+ * The range from the deployment block to the head is cut into segments whose logs are
+ * fetched in parallel; segments are applied strictly in order, each in its own transaction
+ * together with the backfill checkpoint, so an interrupted run resumes after the last applied segment.
+ */
+@Service
+public class ContractEventBackfillService {
+    private static final Logger LOGGER = Logger.getLogger(ContractEventBackfillService.class.getName());
+
+    public static final String CHECKPOINT_NAME = "contract-backfill";
+
+    private final Web3j web3j;
+    private final ContractEventIndexerService eventIndexer;
+    private final ContractEventApplierService eventApplier;
+    private final IndexerCheckpointRepository checkpointRepository;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+
+    @Value("${blockchain.backfill.deployment-block:0}")
+    private long deploymentBlock;
+
+    @Value("${blockchain.backfill.segment-size:10000}")
+    private long segmentSize;
+
+    @Value("${blockchain.backfill.parallelism:4}")
+    private int parallelism;
+
+    @Value("${blockchain.indexer.confirmations:2}")
+    private long confirmations;
+
+    // Progress, written by the coordinator thread and read for reporting
+    private volatile boolean running;
+    private volatile long startBlock;
+    private volatile long targetBlock;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String lastError;
+    private final AtomicLong lastAppliedBlock = new AtomicLong(-1);
+    private final AtomicLong eventsApplied = new AtomicLong();
+    private final AtomicInteger segmentsApplied = new AtomicInteger();
+    private final AtomicInteger rangeSplits = new AtomicInteger();
+    private volatile int segmentsTotal;
+
+    @Autowired
+    public ContractEventBackfillService(
+            Web3j web3j,
+            ContractEventIndexerService eventIndexer,
+            ContractEventApplierService eventApplier,
+            IndexerCheckpointRepository checkpointRepository) {
+        this.web3j = web3j;
+        this.eventIndexer = eventIndexer;
+        this.eventApplier = eventApplier;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    /**
+     * Starts a backfill in the background, resuming from the backfill checkpoint when one exists
+     * @param restart ignore the checkpoint and start again from the deployment block
+     * @return false if a backfill is already running
+     */
+    public synchronized boolean startBackfill(boolean restart) {
+        if (running) {
+            return false;
+        }
+
+        running = true;
+        lastError = null;
+        finishedAt = null;
+        startedAt = Instant.now();
+        eventsApplied.set(0);
+        segmentsApplied.set(0);
+        rangeSplits.set(0);
+
+        coordinator.submit(() -> {
+            try {
+                runBackfill(restart);
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                LOGGER.log(Level.SEVERE, "❌ Event backfill stopped at block " + lastAppliedBlock.get(), e);
+            } finally {
+                running = false;
+                finishedAt = Instant.now();
+            }
+        });
+        return true;
+    }
+
+    private void runBackfill(boolean restart) throws IOException {
+        long head = web3j.ethBlockNumber().send().getBlockNumber().longValue() - confirmations;
+        long resumeAfter = restart ? deploymentBlock - 1 : checkpointRepository.findById(CHECKPOINT_NAME)
+                .map(IndexerCheckpoint::getLastProcessedBlock)
+                .orElse(deploymentBlock - 1);
+
+        startBlock = resumeAfter + 1;
+        targetBlock = head;
+        lastAppliedBlock.set(resumeAfter);
+
+        List<long[]> segments = new ArrayList<>();
+        for (long from = resumeAfter + 1; from <= head; from += segmentSize) {
+            segments.add(new long[]{from, Math.min(head, from + segmentSize - 1)});
+        }
+        segmentsTotal = segments.size();
+        LOGGER.info("Starting event backfill of blocks " + startBlock + "-" + head + " in " + segments.size() + " segments");
+
+        ExecutorService fetchers = Executors.newFixedThreadPool(parallelism);
+        try {
+            // Keep up to `parallelism` segments in flight while applying the oldest one
+            Deque<CompletableFuture<List<Log>>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            for (int applied = 0; applied < segments.size(); applied++) {
+                while (next < segments.size() && inFlight.size() < parallelism) {
+                    long[] segment = segments.get(next++);
+                    inFlight.add(CompletableFuture.supplyAsync(() -> fetchRange(segment[0], segment[1]), fetchers));
+                }
+
+                long[] segment = segments.get(applied);
+                List<Log> logs = joinFetch(inFlight.poll());
+                eventsApplied.addAndGet(eventApplier.applyLogs(logs, CHECKPOINT_NAME, segment[1]));
+                lastAppliedBlock.set(segment[1]);
+                segmentsApplied.incrementAndGet();
+
+                if (segmentsApplied.get() % 10 == 0) {
+                    LOGGER.info("Backfill progress: " + segmentsApplied.get() + "/" + segmentsTotal +
+                            " segments, " + eventsApplied.get() + " events, block " + segment[1]);
+                }
+            }
+        } finally {
+            fetchers.shutdownNow();
+        }
+
+        LOGGER.info("✅ Event backfill finished: " + eventsApplied.get() + " events up to block " + head);
+    }
+
+    /**
+     * Fetches a range, halving it whenever the provider refuses it as too large
+     */
+    private List<Log> fetchRange(long from, long to) {
+        try {
+            return eventIndexer.fetchLogs(from, to);
+        } catch (IOException e) {
+            if (from < to && isResultLimitError(e.getMessage())) {
+                rangeSplits.incrementAndGet();
+                long mid = from + (to - from) / 2;
+                List<Log> logs = new ArrayList<>(fetchRange(from, mid));
+                logs.addAll(fetchRange(mid + 1, to));
+                return logs;
+            }
+            throw new CompletionException(e);
+        }
+    }
+
+    private static List<Log> joinFetch(CompletableFuture<List<Log>> fetch) throws IOException {
+        try {
+            return fetch.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isResultLimitError(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("more than") ||
+                lower.contains("limit exceeded") ||
+                lower.contains("too many") ||
+                lower.contains("response size") ||
+                lower.contains("block range") ||
+                lower.contains("-32005");
+    }
+
+    /**
+     * Progress of the current or last backfill run
+     */
+    public Map<String, Object> getBackfillStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running);
+        status.put("startBlock", startBlock);
+        status.put("targetBlock", targetBlock);
+        status.put("lastAppliedBlock", lastAppliedBlock.get());
+        status.put("segmentsApplied", segmentsApplied.get());
+        status.put("segmentsTotal", segmentsTotal);
+        status.put("rangeSplits", rangeSplits.get());
+        status.put("eventsApplied", eventsApplied.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("lastError", lastError);
+
+        long totalBlocks = targetBlock - startBlock + 1;
+        if (totalBlocks > 0) {
+            status.put("percentComplete",
+                    Math.min(100.0, 100.0 * (lastAppliedBlock.get() - startBlock + 1) / totalBlocks));
+        }
+        if (startedAt != null) {
+            long seconds = Math.max(1, Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).getSeconds());
+            status.put("eventsPerSecond", eventsApplied.get() / seconds);
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+    }
+}
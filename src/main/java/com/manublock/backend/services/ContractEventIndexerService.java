@@ -0,0 +1,119 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.models.IndexerCheckpoint;
+import com.manublock.backend.repositories.IndexerCheckpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Follows the supply chain contract with eth_getLogs range scans.
+ * The last processed block is checkpointed, so each poll costs one range call
+ * rather than a read per item, and a restart resumes where it left off.
+ */
+@Service
+public class ContractEventIndexerService {
+    private static final Logger LOGGER = Logger.getLogger(ContractEventIndexerService.class.getName());
+
+    public static final String CHECKPOINT_NAME = "contract-events";
+
+    private final Web3j web3j;
+    private final ContractEventApplierService eventApplier;
+    private final IndexerCheckpointRepository checkpointRepository;
+    private final String contractAddress;
+
+    // First block to index when no checkpoint exists; negative means start at the current head
+    @Value("${blockchain.indexer.start-block:-1}")
+    private long startBlock;
+
+    @Value("${blockchain.indexer.max-block-range:2000}")
+    private long maxBlockRange;
+
+    // Blocks to stay behind the head to avoid indexing logs that get reorged out
+    @Value("${blockchain.indexer.confirmations:2}")
+    private long confirmations;
+
+    @Value("${blockchain.indexer.max-ranges-per-poll:10}")
+    private int maxRangesPerPoll;
+
+    @Autowired
+    public ContractEventIndexerService(
+            Web3j web3j,
+            ContractEventApplierService eventApplier,
+            IndexerCheckpointRepository checkpointRepository,
+            @Value("${blockchain.contract.address}") String contractAddress) {
+        this.web3j = web3j;
+        this.eventApplier = eventApplier;
+        this.checkpointRepository = checkpointRepository;
+        this.contractAddress = contractAddress;
+    }
+
+    /**
+     * Scans the blocks after the checkpoint and applies the contract's events
+     * @return number of events applied
+     */
+    public int indexNewEvents() throws IOException {
+        long safeHead = web3j.ethBlockNumber().send().getBlockNumber().longValue() - confirmations;
+        long lastProcessed = checkpointRepository.findById(CHECKPOINT_NAME)
+                .map(IndexerCheckpoint::getLastProcessedBlock)
+                .orElseGet(() -> createInitialCheckpoint(safeHead));
+
+        int applied = 0;
+        for (int range = 0; range < maxRangesPerPoll && lastProcessed < safeHead; range++) {
+            long from = lastProcessed + 1;
+            long to = Math.min(safeHead, from + maxBlockRange - 1);
+
+            List<Log> logs = fetchLogs(from, to);
+            applied += eventApplier.applyLogs(logs, CHECKPOINT_NAME, to);
+            lastProcessed = to;
+        }
+
+        if (applied > 0) {
+            LOGGER.info("Indexed " + applied + " contract events up to block " + lastProcessed);
+        }
+        return applied;
+    }
+
+    /**
+     * Fetches the indexed contract events in an inclusive block range with one eth_getLogs call
+     */
+    public List<Log> fetchLogs(long fromBlock, long toBlock) throws IOException {
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(fromBlock)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(toBlock)),
+                contractAddress);
+        filter.addOptionalTopics(ContractEventApplierService.INDEXED_EVENT_TOPICS.toArray(new String[0]));
+
+        EthLog response = web3j.ethGetLogs(filter).send();
+        if (response.hasError()) {
+            throw new IOException("eth_getLogs failed for blocks " + fromBlock + "-" + toBlock + ": " +
+                    response.getError().getMessage());
+        }
+
+        List<Log> logs = new ArrayList<>();
+        for (EthLog.LogResult<?> result : response.getLogs()) {
+            if (result instanceof EthLog.LogObject logObject) {
+                logs.add(logObject.get());
+            }
+        }
+        return logs;
+    }
+
+    private long createInitialCheckpoint(long safeHead) {
+        long initial = startBlock >= 0 ? startBlock - 1 : safeHead;
+        checkpointRepository.save(new IndexerCheckpoint(CHECKPOINT_NAME, initial));
+        LOGGER.info("No indexer checkpoint found, starting after block " + initial);
+        return initial;
+    }
+}
@@ -0,0 +1,277 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.contracts.contract.SmartContract;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.tuples.generated.Tuple7;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Runs SmartContract view calls as JSON-RPC batches of eth_call, behind the ContractViewCache.
+ * Large read sets are cut into batches that are sent with bounded parallelism, so
+ * fanning out over every parent and child of an item costs a couple of round trips.
+ */
+@Service
+public class ContractReadBatcher {
+
+    private final Web3j web3j;
+    private final ContractViewCache viewCache;
+    private final SmartContract contract;
+    private final String contractAddress;
+    private final int batchSize;
+    private final ExecutorService batchExecutor;
+
+    @Autowired
+    public ContractReadBatcher(
+            Web3j web3j,
+            BlockchainService blockchainService,
+            ContractViewCache viewCache,
+            @Value("${blockchain.contract.address}") String contractAddress,
+            @Value("${blockchain.reads.batch-size:50}") int batchSize,
+            @Value("${blockchain.reads.max-parallel-batches:4}") int maxParallelBatches) {
+        this.web3j = web3j;
+        this.viewCache = viewCache;
+        this.contract = blockchainService.getContract();
+        this.contractAddress = contractAddress;
+        this.batchSize = batchSize;
+        this.batchExecutor = Executors.newFixedThreadPool(maxParallelBatches);
+    }
+
+    /**
+     * Executes the view calls and decodes their results. Cacheable calls are served from the
+     * view cache when possible; the rest are read at the block the cache is synced to.
+     * @return decoded outputs in call order; null where the call reverted
+     */
+    public List<List<Type>> call(List<? extends RemoteFunctionCall<?>> calls) throws IOException {
+        return call(calls, true);
+    }
+
+    /**
+     * @param useCache false to read every call at the latest block without touching the view cache
+     */
+    private List<List<Type>> call(List<? extends RemoteFunctionCall<?>> calls, boolean useCache) throws IOException {
+        long block = useCache ? viewCache.syncToHead() : -1;
+        DefaultBlockParameter blockParameter = block >= 0
+                ? DefaultBlockParameter.valueOf(BigInteger.valueOf(block))
+                : DefaultBlockParameterName.LATEST;
+
+        List<List<Type>> results = new ArrayList<>(calls.size());
+        List<String> encodedCalls = new ArrayList<>(calls.size());
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < calls.size(); i++) {
+            String encoded = calls.get(i).encodeFunctionCall();
+            List<Type> cached = block >= 0 ? viewCache.get(encoded) : null;
+            encodedCalls.add(encoded);
+            results.add(cached);
+            if (cached == null) {
+                misses.add(i);
+            }
+        }
+
+        List<CompletableFuture<List<List<Type>>>> batches = new ArrayList<>();
+        for (int start = 0; start < misses.size(); start += batchSize) {
+            List<Integer> chunk = misses.subList(start, Math.min(start + batchSize, misses.size()));
+            batches.add(CompletableFuture.supplyAsync(
+                    () -> sendBatch(chunk, calls, encodedCalls, blockParameter), batchExecutor));
+        }
+
+        try {
+            int missIndex = 0;
+            for (CompletableFuture<List<List<Type>>> batch : batches) {
+                for (List<Type> value : batch.join()) {
+                    int index = misses.get(missIndex++);
+                    results.set(index, value);
+                    if (useCache) {
+                        viewCache.put(encodedCalls.get(index), value, block);
+                    }
+                }
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * getItemDetails for each id; ids whose call reverted are left out
+     */
+    public Map<BigInteger, Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean>> getItemDetails(
+            List<BigInteger> itemIds) throws IOException {
+        List<List<Type>> results = call(itemIds.stream().map(contract::getItemDetails).collect(Collectors.toList()));
+
+        Map<BigInteger, Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean>> details =
+                new LinkedHashMap<>();
+        for (int i = 0; i < itemIds.size(); i++) {
+            if (results.get(i) != null) {
+                details.put(itemIds.get(i), toItemDetails(results.get(i)));
+            }
+        }
+        return details;
+    }
+
+    /**
+     * isParticipantAuthorized for many participants of one supply chain in one batch, read at the
+     * latest block. The view cache is bypassed: AuthorizationCacheService does its own caching, and
+     * its negative TTL only bounds staleness if a miss really goes to the contract.
+     * @return authorization by participant id; participants whose call failed are left out
+     */
+    public Map<BigInteger, Boolean> isParticipantAuthorized(BigInteger supplyChainId, List<BigInteger> participantIds)
+            throws IOException {
+        List<List<Type>> results = call(participantIds.stream()
+                .map(participantId -> contract.isParticipantAuthorized(supplyChainId, participantId))
+                .collect(Collectors.toList()), false);
+
+        Map<BigInteger, Boolean> authorized = new LinkedHashMap<>();
+        for (int i = 0; i < participantIds.size(); i++) {
+            if (results.get(i) != null) {
+                authorized.put(participantIds.get(i), (Boolean) results.get(i).get(0).getValue());
+            }
+        }
+        return authorized;
+    }
+
+    /**
+     * getItemChildren for one item
+     */
+    public List<BigInteger> getItemChildren(BigInteger itemId) throws IOException {
+        List<Type> result = call(List.of(contract.getItemChildren(itemId))).get(0);
+        if (result == null) {
+            throw new IOException("getItemChildren reverted for item " + itemId);
+        }
+        return toIdList(result);
+    }
+
+    /**
+     * Details, parent ids and child ids of one item in a single batch
+     */
+    public ItemSnapshot getItemSnapshot(BigInteger itemId) throws IOException {
+        List<List<Type>> results = call(Arrays.asList(
+                contract.getItemDetails(itemId),
+                contract.getItemParents(itemId),
+                contract.getItemChildren(itemId)));
+
+        if (results.get(0) == null) {
+            throw new IOException("getItemDetails reverted for item " + itemId);
+        }
+        return new ItemSnapshot(
+                toItemDetails(results.get(0)),
+                results.get(1) != null ? toIdList(results.get(1)) : List.of(),
+                results.get(2) != null ? toIdList(results.get(2)) : List.of());
+    }
+
+    private List<List<Type>> sendBatch(List<Integer> indexes, List<? extends RemoteFunctionCall<?>> calls,
+                                       List<String> encodedCalls, DefaultBlockParameter blockParameter) {
+        try {
+            BatchRequest batch = web3j.newBatch();
+            Map<Long, Integer> positionByRequestId = new HashMap<>();
+            for (int i = 0; i < indexes.size(); i++) {
+                Request<?, EthCall> request = web3j.ethCall(
+                        Transaction.createEthCallTransaction(null, contractAddress, encodedCalls.get(indexes.get(i))),
+                        blockParameter);
+                positionByRequestId.put(request.getId(), i);
+                batch.add(request);
+            }
+
+            List<List<Type>> results = new ArrayList<>(indexes.size());
+            for (int i = 0; i < indexes.size(); i++) {
+                results.add(null);
+            }
+
+            // Responses are matched by id, providers do not have to keep request order
+            for (Response<?> response : batch.send().getResponses()) {
+                Integer position = positionByRequestId.get(response.getId());
+                if (position == null || response.hasError()) {
+                    continue;
+                }
+                EthCall ethCall = (EthCall) response;
+                if (!ethCall.isReverted() && ethCall.getValue() != null && !"0x".equals(ethCall.getValue())) {
+                    results.set(position, calls.get(indexes.get(position)).decodeFunctionResponse(ethCall.getValue()));
+                }
+            }
+            return results;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> toItemDetails(
+            List<Type> values) {
+        return new Tuple7<>(
+                (BigInteger) values.get(0).getValue(),
+                (BigInteger) values.get(1).getValue(),
+                (BigInteger) values.get(2).getValue(),
+                (BigInteger) values.get(3).getValue(),
+                (BigInteger) values.get(4).getValue(),
+                (String) values.get(5).getValue(),
+                (Boolean) values.get(6).getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BigInteger> toIdList(List<Type> values) {
+        List<Type> array = (List<Type>) values.get(0).getValue();
+        return array.stream()
+                .map(value -> (BigInteger) value.getValue())
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * On-chain view of one item and its direct links
+     */
+    public static class ItemSnapshot {
+        private final Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> details;
+        private final List<BigInteger> parentIds;
+        private final List<BigInteger> childIds;
+
+        ItemSnapshot(Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> details,
+                     List<BigInteger> parentIds, List<BigInteger> childIds) {
+            this.details = details;
+            this.parentIds = parentIds;
+            this.childIds = childIds;
+        }
+
+        public Tuple7<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String, Boolean> getDetails() {
+            return details;
+        }
+
+        public List<BigInteger> getParentIds() {
+            return parentIds;
+        }
+
+        public List<BigInteger> getChildIds() {
+            return childIds;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.contracts.contract.SmartContract;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-through cache for the SmartContract view calls that only change when an event says so:
+ * getItemDetails, getItemParents, getItemChildren and isParticipantAuthorized.
+ * Entries are keyed by the encoded call (function and arguments) and pinned to the block they
+ * were read at. Before serving reads the cache catches up with new blocks through one eth_getLogs
+ * call and drops exactly the entries whose item or supply chain appears in the decoded events.
+ */
+@Service
+public class ContractViewCache {
+    private static final Logger LOGGER = Logger.getLogger(ContractViewCache.class.getName());
+
+    private static final String ITEM_TRANSFERRED_TOPIC = EventEncoder.encode(SmartContract.ITEMTRANSFERRED_EVENT);
+    private static final String ITEM_PROCESSED_TOPIC = EventEncoder.encode(SmartContract.ITEMPROCESSED_EVENT);
+    private static final String ITEM_STATUS_UPDATED_TOPIC = EventEncoder.encode(SmartContract.ITEMSTATUSUPDATED_EVENT);
+    private static final String PARTICIPANT_AUTHORIZED_TOPIC = EventEncoder.encode(SmartContract.PARTICIPANTAUTHORIZED_EVENT);
+
+    private final Web3j web3j;
+    private final String contractAddress;
+    private final int maxEntries;
+    private final long syncIntervalMs;
+    private final long maxSyncRange;
+
+    // Selector of each cacheable view function -> tag prefix of what invalidates it
+    private final Map<String, String> tagPrefixBySelector = new HashMap<>();
+
+    private final Map<String, CachedRead> entries;
+    private final Map<String, Set<String>> keysByTag = new ConcurrentHashMap<>();
+    // Last block at which each tag was invalidated, so a read from an older block is not stored
+    private final Map<String, Long> invalidatedAtBlock = new ConcurrentHashMap<>();
+    // Highest block whose invalidations were dropped by clear(); reads at or before it are not stored
+    private final AtomicLong clearedThroughBlock = new AtomicLong(-1);
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long syncedBlock = -1;
+    private volatile long lastSyncAt;
+
+    @Autowired
+    public ContractViewCache(
+            Web3j web3j,
+            BlockchainService blockchainService,
+            @Value("${blockchain.contract.address}") String contractAddress,
+            @Value("${blockchain.view-cache.max-entries:10000}") int maxEntries,
+            @Value("${blockchain.view-cache.sync-interval-ms:3000}") long syncIntervalMs,
+            @Value("${blockchain.view-cache.max-sync-range:2000}") long maxSyncRange) {
+        this.web3j = web3j;
+        this.contractAddress = contractAddress;
+        this.maxEntries = maxEntries;
+        this.syncIntervalMs = syncIntervalMs;
+        this.maxSyncRange = maxSyncRange;
+
+        SmartContract contract = blockchainService.getContract();
+        tagPrefixBySelector.put(selector(contract.getItemDetails(BigInteger.ZERO).encodeFunctionCall()), "item:");
+        tagPrefixBySelector.put(selector(contract.getItemParents(BigInteger.ZERO).encodeFunctionCall()), "item:");
+        tagPrefixBySelector.put(selector(contract.getItemChildren(BigInteger.ZERO).encodeFunctionCall()), "item:");
+        tagPrefixBySelector.put(selector(contract.isParticipantAuthorized(BigInteger.ZERO, BigInteger.ZERO)
+                .encodeFunctionCall()), "chain:");
+
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRead> eldest) {
+                if (size() <= ContractViewCache.this.maxEntries) {
+                    return false;
+                }
+                Set<String> keys = keysByTag.get(eldest.getValue().tag);
+                if (keys != null) {
+                    keys.remove(eldest.getKey());
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Brings the cache up to the current head, invalidating entries touched by the events
+     * in between, at most once per sync interval
+     * @return block that reads should be made at, or -1 if the head is unknown and reads must bypass the cache
+     */
+    public long syncToHead() {
+        if (System.currentTimeMillis() - lastSyncAt < syncIntervalMs || !syncLock.tryLock()) {
+            return syncedBlock;
+        }
+        try {
+            long head = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+            if (syncedBlock < 0 || head - syncedBlock > maxSyncRange) {
+                // Too far behind to replay cheaply: start over from the head, whose reads see every change
+                clear(head - 1);
+            } else if (head > syncedBlock) {
+                invalidateFromLogs(syncedBlock + 1, head);
+            }
+            syncedBlock = Math.max(syncedBlock, head);
+            lastSyncAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "View cache could not sync with the chain head", e);
+            clear(syncedBlock);
+            syncedBlock = -1;
+        } finally {
+            syncLock.unlock();
+        }
+        return syncedBlock;
+    }
+
+    /**
+     * Cached result of an encoded view call, or null on a miss
+     */
+    public List<Type> get(String encodedCall) {
+        CachedRead cached = entries.get(encodedCall);
+        return cached != null ? cached.value : null;
+    }
+
+    /**
+     * Stores a result read at the given block, unless the call is not cacheable or
+     * its item or chain has been invalidated since that block
+     */
+    public void put(String encodedCall, List<Type> value, long block) {
+        String tag = tagFor(encodedCall);
+        if (tag == null || value == null || block < 0 || isInvalidatedSince(tag, block)) {
+            return;
+        }
+        CachedRead read = new CachedRead(value, tag);
+        keysByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(encodedCall);
+        entries.put(encodedCall, read);
+
+        // An invalidation that raised its watermark after the check above may have removed the
+        // tag's keys before this entry was added. Invalidations raise the watermark before removing
+        // keys, so whichever runs last of the two sees the other and the entry does not survive.
+        if (isInvalidatedSince(tag, block)) {
+            entries.remove(encodedCall, read);
+        }
+    }
+
+    private boolean isInvalidatedSince(String tag, long block) {
+        return block <= clearedThroughBlock.get() || invalidatedAtBlock.getOrDefault(tag, -1L) >= block;
+    }
+
+    public void invalidateItem(BigInteger itemId, long block) {
+        invalidateTag("item:" + itemId, block);
+    }
+
+    public void invalidateSupplyChain(BigInteger supplyChainId, long block) {
+        invalidateTag("chain:" + supplyChainId, block);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void invalidateFromLogs(long fromBlock, long toBlock) throws IOException {
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(fromBlock)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(toBlock)),
+                contractAddress);
+        filter.addOptionalTopics(ITEM_TRANSFERRED_TOPIC, ITEM_PROCESSED_TOPIC, ITEM_STATUS_UPDATED_TOPIC,
+                PARTICIPANT_AUTHORIZED_TOPIC);
+
+        EthLog response = web3j.ethGetLogs(filter).send();
+        if (response.hasError()) {
+            throw new IOException("eth_getLogs failed: " + response.getError().getMessage());
+        }
+
+        for (EthLog.LogResult<?> result : response.getLogs()) {
+            if (!(result instanceof EthLog.LogObject logObject)) {
+                continue;
+            }
+            Log log = logObject.get();
+            long block = log.getBlockNumber().longValue();
+            String topic = log.getTopics().get(0);
+
+            if (ITEM_TRANSFERRED_TOPIC.equals(topic)) {
+                invalidateItem(SmartContract.getItemTransferredEventFromLog(log).itemId, block);
+            } else if (ITEM_STATUS_UPDATED_TOPIC.equals(topic)) {
+                invalidateItem(SmartContract.getItemStatusUpdatedEventFromLog(log).itemId, block);
+            } else if (ITEM_PROCESSED_TOPIC.equals(topic)) {
+                // The new item gains parents and every source item gains a child
+                SmartContract.ItemProcessedEventResponse processed = SmartContract.getItemProcessedEventFromLog(log);
+                invalidateItem(processed.newItemId, block);
+                processed.sourceItemIds.forEach(sourceId -> invalidateItem(sourceId, block));
+            } else if (PARTICIPANT_AUTHORIZED_TOPIC.equals(topic)) {
+                invalidateSupplyChain(SmartContract.getParticipantAuthorizedEventFromLog(log).supplyChainId, block);
+            }
+        }
+    }
+
+    private void invalidateTag(String tag, long block) {
+        if (invalidatedAtBlock.size() > maxEntries * 2) {
+            clear(block);
+        }
+        invalidatedAtBlock.merge(tag, block, Math::max);
+        Set<String> keys = keysByTag.remove(tag);
+        if (keys != null) {
+            keys.forEach(entries::remove);
+        }
+    }
+
+    /**
+     * Drops every entry and per-tag watermark, keeping their maximum (and throughBlock) as one
+     * watermark, so a read still in flight from before the clear cannot be stored afterwards
+     */
+    private void clear(long throughBlock) {
+        long dropped = invalidatedAtBlock.values().stream().mapToLong(Long::longValue).max().orElse(-1L);
+        clearedThroughBlock.accumulateAndGet(Math.max(throughBlock, dropped), Math::max);
+        entries.clear();
+        keysByTag.clear();
+        invalidatedAtBlock.clear();
+    }
+
+    private String tagFor(String encodedCall) {
+        if (encodedCall == null || encodedCall.length() < 74) {
+            return null;
+        }
+        String prefix = tagPrefixBySelector.get(selector(encodedCall));
+        if (prefix == null) {
+            return null;
+        }
+        // All cacheable calls take the item or supply chain id as their first argument
+        return prefix + new BigInteger(encodedCall.substring(10, 74), 16);
+    }
+
+    private static String selector(String encodedCall) {
+        return encodedCall.substring(0, 10).toLowerCase();
+    }
+
+    private static class CachedRead {
+        private final List<Type> value;
+        private final String tag;
+
+        CachedRead(List<Type> value, String tag) {
+            this.value = value;
+            this.tag = tag;
+        }
+    }
+}
@@ -1,25 +1,96 @@
 package com.manublock.backend.services;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+import org.web3j.tx.gas.ContractEIP1559GasProvider;
 import org.web3j.tx.gas.ContractGasProvider;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
 
 /**
  * Service to provide dynamic gas prices for blockchain transactions
  * This avoids circular dependencies in the configuration layer
+ *
+ * Prices are refreshed in the background about once per block and served from an
+ * immutable cached quote, so sending a transaction never waits on a gas price RPC.
  */
 @Service
 public class DynamicGasProviderService {
+    private static final Logger LOGGER = Logger.getLogger(DynamicGasProviderService.class.getName());
+
     private final Web3j web3j;
+    private final GasLimitProfilerService gasLimitProfiler;
 
     // Default gas values as fallback
     private static final BigInteger DEFAULT_GAS_PRICE = BigInteger.valueOf(50_000_000_000L); // 50 Gwei
-    private static final BigInteger DEFAULT_GAS_LIMIT = BigInteger.valueOf(700_000);
 
-    public DynamicGasProviderService(Web3j web3j) {
+    // Roughly one block on Sepolia
+    @Value("${blockchain.gas.refresh-interval-ms:12000}")
+    private long refreshIntervalMs;
+
+    // Stop refreshing when nothing has asked for a price for this long
+    @Value("${blockchain.gas.idle-after-ms:300000}")
+    private long idleAfterMs;
+
+    @Value("${blockchain.gas.eip1559-enabled:true}")
+    private boolean eip1559Enabled;
+
+    @Value("${blockchain.chain-id:11155111}")
+    private long chainId;
+
+    @Value("${blockchain.gas.fee-history-blocks:10}")
+    private int feeHistoryBlocks;
+
+    // Percentile of recent priority fees to pay: lower is cheaper, higher is faster
+    @Value("${blockchain.gas.priority-fee-percentile:50}")
+    private double priorityFeePercentile;
+
+    @Value("${blockchain.gas.min-priority-fee-wei:1000000000}")
+    private long minPriorityFeeWei;
+
+    // maxFeePerGas = baseFee * multiplier + priority fee, headroom for base fee rises while pending
+    @Value("${blockchain.gas.base-fee-multiplier:2}")
+    private long baseFeeMultiplier;
+
+    private final AtomicReference<GasQuote> currentQuote = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final AtomicBoolean refreshQueued = new AtomicBoolean(false);
+    private final ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor();
+    private volatile long lastReadAt = System.currentTimeMillis();
+
+    public DynamicGasProviderService(Web3j web3j, GasLimitProfilerService gasLimitProfiler) {
         this.web3j = web3j;
+        this.gasLimitProfiler = gasLimitProfiler;
+    }
+
+    @PostConstruct
+    public void startRefreshing() {
+        refreshExecutor.scheduleWithFixedDelay(() -> {
+            if (System.currentTimeMillis() - lastReadAt < idleAfterMs) {
+                refreshQuote();
+            }
+        }, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopRefreshing() {
+        refreshExecutor.shutdownNow();
     }
 
     /**
@@ -27,22 +98,168 @@ public class DynamicGasProviderService {
      * @return the current gas price with a 1.2x multiplier for better transaction success
      */
     public BigInteger getCurrentGasPrice() {
+        return readQuote().gasPrice;
+    }
+
+    /**
+     * @return whether the latest quote carries EIP-1559 fees
+     */
+    public boolean isEIP1559Available() {
+        return readQuote().eip1559;
+    }
+
+    public BigInteger getMaxFeePerGas() {
+        return readQuote().maxFeePerGas;
+    }
+
+    public BigInteger getMaxPriorityFeePerGas() {
+        return readQuote().maxPriorityFeePerGas;
+    }
+
+    public long getChainId() {
+        return chainId;
+    }
+
+    /**
+     * The cached quote as one snapshot, for callers that need several fields to agree
+     */
+    public GasQuote getGasQuote() {
+        return readQuote();
+    }
+
+    /**
+     * Current cached quote, for monitoring
+     */
+    public Map<String, Object> getGasQuoteStatus() {
+        GasQuote quote = readQuote();
+        Map<String, Object> status = new HashMap<>();
+        status.put("eip1559", quote.eip1559);
+        status.put("gasPrice", quote.gasPrice);
+        status.put("baseFeePerGas", quote.baseFeePerGas);
+        status.put("maxFeePerGas", quote.maxFeePerGas);
+        status.put("maxPriorityFeePerGas", quote.maxPriorityFeePerGas);
+        status.put("ageMs", quote.fetchedAt > 0 ? System.currentTimeMillis() - quote.fetchedAt : null);
+        return status;
+    }
+
+    /**
+     * Lock-free read of the cached quote. A quote gone stale while idle is still served,
+     * and a refresh is started in the background.
+     */
+    private GasQuote readQuote() {
+        lastReadAt = System.currentTimeMillis();
+        GasQuote quote = currentQuote.get();
+        boolean stale = quote == null || lastReadAt - quote.fetchedAt > refreshIntervalMs * 2;
+        if (stale && refreshQueued.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> {
+                refreshQueued.set(false);
+                refreshQuote();
+            });
+        }
+        return quote != null ? quote : GasQuote.fallback();
+    }
+
+    private void refreshQuote() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            BigInteger currentGasPrice = web3j.ethGasPrice().send().getGasPrice();
-            // Multiply by 1.2 for better transaction success
-            return currentGasPrice.multiply(BigInteger.valueOf(12)).divide(BigInteger.valueOf(10));
+            GasQuote quote = null;
+            if (eip1559Enabled) {
+                quote = fetchFeeHistoryQuote();
+            }
+            if (quote == null) {
+                quote = fetchLegacyQuote();
+            }
+            currentQuote.set(quote);
         } catch (Exception e) {
             System.out.println("⚠️ Could not fetch gas price: " + e.getMessage());
-            return DEFAULT_GAS_PRICE;
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * Builds EIP-1559 fees from eth_feeHistory, or returns null when the node
+     * does not support it or returns no base fee
+     */
+    private GasQuote fetchFeeHistoryQuote() {
+        try {
+            EthFeeHistory response = web3j.ethFeeHistory(feeHistoryBlocks, DefaultBlockParameterName.LATEST,
+                    List.of(priorityFeePercentile)).send();
+            if (response.hasError() || response.getFeeHistory() == null) {
+                return null;
+            }
+
+            EthFeeHistory.FeeHistory history = response.getFeeHistory();
+            List<BigInteger> baseFees = history.getBaseFeePerGas();
+            if (baseFees == null || baseFees.isEmpty()) {
+                return null;
+            }
+            // The last entry is the base fee of the next block
+            BigInteger baseFee = baseFees.get(baseFees.size() - 1);
+
+            List<BigInteger> rewards = new ArrayList<>();
+            if (history.getReward() != null) {
+                for (List<BigInteger> blockRewards : history.getReward()) {
+                    if (!blockRewards.isEmpty() && blockRewards.get(0).signum() > 0) {
+                        rewards.add(blockRewards.get(0));
+                    }
+                }
+            }
+            BigInteger priorityFee = BigInteger.valueOf(minPriorityFeeWei);
+            if (!rewards.isEmpty()) {
+                Collections.sort(rewards);
+                priorityFee = priorityFee.max(rewards.get(rewards.size() / 2));
+            }
+
+            BigInteger maxFee = baseFee.multiply(BigInteger.valueOf(baseFeeMultiplier)).add(priorityFee);
+            // Legacy price for code paths that still send type-0 transactions, with the usual 1.2x
+            BigInteger gasPrice = baseFee.add(priorityFee)
+                    .multiply(BigInteger.valueOf(12)).divide(BigInteger.valueOf(10));
+
+            return new GasQuote(true, gasPrice, baseFee, maxFee, priorityFee, System.currentTimeMillis());
+        } catch (Exception e) {
+            // Expected on nodes without EIP-1559 support, and repeated on every refresh
+            LOGGER.fine("eth_feeHistory unavailable, using legacy gas price: " + e.getMessage());
+            return null;
         }
     }
 
+    private GasQuote fetchLegacyQuote() throws Exception {
+        BigInteger currentGasPrice = web3j.ethGasPrice().send().getGasPrice();
+        // Multiply by 1.2 for better transaction success
+        BigInteger gasPrice = currentGasPrice.multiply(BigInteger.valueOf(12)).divide(BigInteger.valueOf(10));
+        return new GasQuote(false, gasPrice, null, gasPrice, gasPrice, System.currentTimeMillis());
+    }
+
     /**
-     * Creates a custom gas provider with the latest gas price
+     * Creates a custom gas provider backed by the cached quote and the learned gas limits.
+     * Contract wrappers send EIP-1559 transactions through it whenever the quote supports them.
      * @return a contract gas provider with dynamic gas price
      */
     public ContractGasProvider createDynamicGasProvider() {
-        return new ContractGasProvider() {
+        return new ContractEIP1559GasProvider() {
+            @Override
+            public boolean isEIP1559Enabled() {
+                return isEIP1559Available();
+            }
+
+            @Override
+            public long getChainId() {
+                return chainId;
+            }
+
+            @Override
+            public BigInteger getMaxFeePerGas(String contractFunc) {
+                return DynamicGasProviderService.this.getMaxFeePerGas();
+            }
+
+            @Override
+            public BigInteger getMaxPriorityFeePerGas(String contractFunc) {
+                return DynamicGasProviderService.this.getMaxPriorityFeePerGas();
+            }
+
             @Override
             public BigInteger getGasPrice(String contractFunc) {
                 return getCurrentGasPrice();
@@ -55,7 +272,7 @@ public class DynamicGasProviderService {
 
             @Override
             public BigInteger getGasLimit(String contractFunc) {
-                return DEFAULT_GAS_LIMIT;
+                return gasLimitProfiler.getGasLimitForFunction(contractFunc);
             }
 
             @Override
@@ -64,4 +281,46 @@ public class DynamicGasProviderService {
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Immutable snapshot of gas pricing, swapped atomically on refresh
+     */
+    public static class GasQuote {
+        private final boolean eip1559;
+        private final BigInteger gasPrice;
+        private final BigInteger baseFeePerGas;
+        private final BigInteger maxFeePerGas;
+        private final BigInteger maxPriorityFeePerGas;
+        private final long fetchedAt;
+
+        GasQuote(boolean eip1559, BigInteger gasPrice, BigInteger baseFeePerGas,
+                 BigInteger maxFeePerGas, BigInteger maxPriorityFeePerGas, long fetchedAt) {
+            this.eip1559 = eip1559;
+            this.gasPrice = gasPrice;
+            this.baseFeePerGas = baseFeePerGas;
+            this.maxFeePerGas = maxFeePerGas;
+            this.maxPriorityFeePerGas = maxPriorityFeePerGas;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public boolean isEip1559() {
+            return eip1559;
+        }
+
+        public BigInteger getGasPrice() {
+            return gasPrice;
+        }
+
+        public BigInteger getMaxFeePerGas() {
+            return maxFeePerGas;
+        }
+
+        public BigInteger getMaxPriorityFeePerGas() {
+            return maxPriorityFeePerGas;
+        }
+
+        static GasQuote fallback() {
+            return new GasQuote(false, DEFAULT_GAS_PRICE, null, DEFAULT_GAS_PRICE, DEFAULT_GAS_PRICE, 0);
+        }
+    }
+}
@@ -24,6 +24,9 @@ public class EdgeService {
     @Autowired
     private NodeRepository nodeRepository;
 
+    @Autowired
+    private SupplyChainGraphCache graphCache;
+
     public Edges addEdge(Long supplyChainId, Edges edge) {
         Chains chain = chainRepository.findById(supplyChainId)
                 .orElseThrow(() -> new RuntimeException("Supply Chain not found"));
@@ -52,7 +55,10 @@ public class EdgeService {
             edge.setStrokeWidth(1);
         }
 
-        return edgeRepository.save(edge);
+        Edges savedEdge = edgeRepository.save(edge);
+        chainRepository.incrementVersion(supplyChainId);
+        graphCache.edgeAdded(supplyChainId, savedEdge.getId(), sourceNode.getId(), targetNode.getId());
+        return savedEdge;
     }
 
     public List<Edges> getEdgesBySupplyChainId(Long supplyChainId) {
@@ -65,7 +71,12 @@ public class EdgeService {
     }
 
     public void deleteEdge(Long edgeId) {
+        Optional<Edges> edge = edgeRepository.findById(edgeId);
         edgeRepository.deleteById(edgeId);
+        edge.ifPresent(e -> {
+            chainRepository.incrementVersion(e.getSupplyChain().getId());
+            graphCache.edgeDeleted(e.getSupplyChain().getId(), edgeId);
+        });
     }
 
     /**
@@ -79,72 +90,6 @@ public class EdgeService {
      * Check if adding an edge would create a cycle in the graph
      */
     public boolean wouldCreateCycle(Long supplyChainId, Long sourceId, Long targetId) {
-        // If source and target are the same, it's a self-loop (cycle)
-        if (sourceId.equals(targetId)) {
-            return true;
-        }
-
-        // Get all nodes and edges for this supply chain
-        List<Nodes> nodes = nodeRepository.findBySupplyChain_Id(supplyChainId);
-        List<Edges> existingEdges = edgeRepository.findBySupplyChain_Id(supplyChainId);
-
-        // Build adjacency list for DFS
-        Map<Long, List<Long>> adjacencyList = new HashMap<>();
-        for (Nodes node : nodes) {
-            adjacencyList.put(node.getId(), new ArrayList<>());
-        }
-
-        // Add existing edges to adjacency list
-        for (Edges edge : existingEdges) {
-            adjacencyList.get(edge.getSource().getId()).add(edge.getTarget().getId());
-        }
-
-        // Temporarily add the new edge
-        if (!adjacencyList.containsKey(sourceId)) {
-            adjacencyList.put(sourceId, new ArrayList<>());
-        }
-        adjacencyList.get(sourceId).add(targetId);
-
-        // Run DFS to detect cycles
-        Set<Long> visited = new HashSet<>();
-        Set<Long> recursionStack = new HashSet<>();
-
-        for (Long nodeId : adjacencyList.keySet()) {
-            if (hasCycle(nodeId, visited, recursionStack, adjacencyList)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Helper method for cycle detection using DFS
-     */
-    private boolean hasCycle(Long nodeId, Set<Long> visited, Set<Long> recursionStack,
-                             Map<Long, List<Long>> adjacencyList) {
-        // If node is not visited, mark it as visited
-        if (!visited.contains(nodeId)) {
-            visited.add(nodeId);
-            recursionStack.add(nodeId);
-
-            // Visit all neighbors
-            List<Long> neighbors = adjacencyList.get(nodeId);
-            if (neighbors != null) {
-                for (Long neighbor : neighbors) {
-                    // If neighbor is not visited and there's a cycle in the subtree
-                    if (!visited.contains(neighbor) && hasCycle(neighbor, visited, recursionStack, adjacencyList)) {
-                        return true;
-                    } else if (recursionStack.contains(neighbor)) {
-                        // If neighbor is in recursion stack, there's a cycle
-                        return true;
-                    }
-                }
-            }
-        }
-
-        // Remove from recursion stack - backtracking
-        recursionStack.remove(nodeId);
-        return false;
+        return graphCache.wouldCreateCycle(supplyChainId, sourceId, targetId);
     }
-}
\ No newline at end of file
+}
@@ -8,7 +8,6 @@ import org.web3j.protocol.core.RemoteFunctionCall;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 
 import java.math.BigInteger;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -30,6 +29,8 @@ public class ExtendedBlockchainService {
     private final ChainRepository chainRepository;
     private final ItemRepository itemRepository;
     private final OrderItemRepository orderItemRepository;
+    private final BlockchainOutboxService outboxService;
+    private final ItemLineageService itemLineageService;
 
     @Autowired
     public ExtendedBlockchainService(
@@ -39,7 +40,9 @@ public class ExtendedBlockchainService {
             ChainRepository chainRepository,
             ItemRepository itemRepository,
             OrderItemRepository orderItemRepository,
-            ProductRepository productRepository) {  // 🆕 Added ProductRepository
+            ProductRepository productRepository,  // 🆕 Added ProductRepository
+            BlockchainOutboxService outboxService,
+            ItemLineageService itemLineageService) {
         this.blockchainService = blockchainService;
         this.transactionRepository = transactionRepository;
         this.userRepository = userRepository;
@@ -47,6 +50,8 @@ public class ExtendedBlockchainService {
         this.itemRepository = itemRepository;
         this.orderItemRepository = orderItemRepository;
         this.productRepository = productRepository;  // 🆕 Assign it to the field
+        this.outboxService = outboxService;
+        this.itemLineageService = itemLineageService;
     }
 
     // 🆕 Add the field declaration at the class level
@@ -63,10 +68,8 @@ public class ExtendedBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("authorizeParticipant");
         tx.setParameters(supplyChainId + "," + participantUserId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setSupplyChainId(supplyChainId);
+        tx.setUserId(participantUserId);
 
         // Get the contract from the blockchain service
         // Changed from walletAddress to participantUserId as BigInteger
@@ -75,8 +78,8 @@ public class ExtendedBlockchainService {
                         BigInteger.valueOf(supplyChainId),
                         BigInteger.valueOf(participantUserId));
 
-        // Use the existing sendTransactionWithRetry mechanism
-        return blockchainService.sendTransactionWithRetry(functionCall, tx);
+        // Queued in the caller's transaction; the outbox dispatchers send it after commit
+        return outboxService.enqueue(tx, functionCall);
     }
 
     /**
@@ -93,10 +96,11 @@ public class ExtendedBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("createItem");
         tx.setParameters(itemId + "," + supplyChainId + "," + quantity + "," + itemType + "," + creatorId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(itemId);
+        tx.setSupplyChainId(supplyChainId);
+        tx.setQuantity(quantity);
+        tx.setActionType(itemType);
+        tx.setUserId(creatorId);
 
         RemoteFunctionCall<TransactionReceipt> functionCall =
                 blockchainService.getContract().createItem(
@@ -107,7 +111,7 @@ public class ExtendedBlockchainService {
                         BigInteger.valueOf(creatorId));
 
         // Send blockchain transaction and update database upon completion
-        return blockchainService.sendTransactionWithRetry(functionCall, tx)
+        return outboxService.enqueue(tx, functionCall)
                 .thenApply(txHash -> {
                     // Create corresponding database entry in Items table
                     try {
@@ -162,10 +166,11 @@ public class ExtendedBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("transferItem");
         tx.setParameters(itemId + "," + toUserId + "," + quantity + "," + actionType + "," + fromUserId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(itemId);
+        tx.setUserId(toUserId);
+        tx.setQuantity(quantity);
+        tx.setActionType(actionType);
+        tx.setFromUserId(fromUserId);
 
         RemoteFunctionCall<TransactionReceipt> functionCall =
                 blockchainService.getContract().transferItem(
@@ -176,7 +181,7 @@ public class ExtendedBlockchainService {
                         BigInteger.valueOf(fromUserId));
 
         // Send blockchain transaction and update database upon completion
-        return blockchainService.sendTransactionWithRetry(functionCall, tx)
+        return outboxService.enqueue(tx, functionCall)
                 .thenApply(txHash -> {
                     // Update the Items table to reflect new ownership
                     try {
@@ -238,10 +243,10 @@ public class ExtendedBlockchainService {
         tx.setFunction("processItem");
         tx.setParameters(sourceItemIds + "," + newItemId + ","
                 + inputQuantities + "," + outputQuantity + "," + newItemType + "," + processorId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(newItemId);
+        tx.setQuantity(outputQuantity);
+        tx.setActionType(newItemType);
+        tx.setUserId(processorId);
 
         RemoteFunctionCall<TransactionReceipt> functionCall =
                 blockchainService.getContract().processItem(
@@ -253,7 +258,7 @@ public class ExtendedBlockchainService {
                         BigInteger.valueOf(processorId));
 
         // Send blockchain transaction and update database upon completion
-        return blockchainService.sendTransactionWithRetry(functionCall, tx)
+        return outboxService.enqueue(tx, functionCall, sourceItemIds)
                 .thenApply(txHash -> {
                     try {
                         // Get necessary data
@@ -283,6 +288,7 @@ public class ExtendedBlockchainService {
                             newItem.setParentItemIds(sourceItemIds);
 
                             itemRepository.save(newItem);
+                            itemLineageService.linksAdded(newItemId, sourceItemIds);
 
                             // Update source items status
                             for (int i = 0; i < sourceItemIds.size(); i++) {
@@ -327,10 +333,9 @@ public class ExtendedBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("updateItemStatus");
         tx.setParameters(itemId + "," + newStatus + "," + ownerId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setItemId(itemId);
+        tx.setStatusCode(newStatus);
+        tx.setUserId(ownerId);
 
         RemoteFunctionCall<TransactionReceipt> functionCall =
                 blockchainService.getContract().updateItemStatus(
@@ -363,7 +368,7 @@ public class ExtendedBlockchainService {
         // Capture status for lambda
         final String finalStatus = statusString;
 
-        return blockchainService.sendTransactionWithRetry(functionCall, tx)
+        return outboxService.enqueue(tx, functionCall)
                 .thenApply(txHash -> {
                     // Update item status in database
                     try {
@@ -391,10 +396,11 @@ public class ExtendedBlockchainService {
         BlockchainTransaction tx = new BlockchainTransaction();
         tx.setFunction("createOrder");
         tx.setParameters(orderId + "," + supplyChainId + "," + customerId);
-        tx.setStatus("PENDING");
-        tx.setCreatedAt(Instant.now());
-        tx.setRetryCount(0);
-        transactionRepository.save(tx);
+        tx.setOrderId(orderId);
+        tx.setSupplyChainId(supplyChainId);
+        tx.setQuantity(quantity);
+        tx.setActionType("ORDER");
+        tx.setUserId(customerId);
 
         // Assuming your smart contract has a `createItem()` function that logs orders as blockchain items
         RemoteFunctionCall<TransactionReceipt> functionCall =
@@ -407,7 +413,7 @@ public class ExtendedBlockchainService {
                 );
 
         // Send the transaction and handle DB update
-        return blockchainService.sendTransactionWithRetry(functionCall, tx)
+        return outboxService.enqueue(tx, functionCall)
                 .thenApply(txHash -> {
                     // Optional: Log or update something in your DB if needed
                     System.out.println("Order created on blockchain with txHash: " + txHash);
@@ -446,10 +452,11 @@ public class ExtendedBlockchainService {
                         BlockchainTransaction tx = new BlockchainTransaction();
                         tx.setFunction("createItem");
                         tx.setParameters(blockchainItemId + "," + supplyChainId + "," + quantity + ",product," + customerId);
-                        tx.setStatus("PENDING");
-                        tx.setCreatedAt(Instant.now());
-                        tx.setRetryCount(retryCount);
-                        transactionRepository.save(tx);
+                        tx.setItemId(blockchainItemId);
+                        tx.setSupplyChainId(supplyChainId);
+                        tx.setQuantity(quantity);
+                        tx.setActionType("product");
+                        tx.setUserId(customerId);
 
                         // Convert parameters to BigInteger for the smart contract
                         BigInteger itemId = BigInteger.valueOf(blockchainItemId);
@@ -470,15 +477,8 @@ public class ExtendedBlockchainService {
                                         creatorId        // creatorId
                                 );
 
-                        // Send the transaction
-                        TransactionReceipt receipt = functionCall.send();
-                        txHash = receipt.getTransactionHash();
-
-                        // Update transaction record
-                        tx.setTransactionHash(txHash);
-                        tx.setStatus("CONFIRMED");
-                        tx.setConfirmedAt(Instant.now());
-                        transactionRepository.save(tx);
+                        // Send through the outbox and wait for it to be mined
+                        txHash = outboxService.enqueue(tx, functionCall).join();
 
                         // Log the successful transaction
                         System.out.println("Created blockchain item with ID: " + blockchainItemId +
@@ -496,7 +496,9 @@ public class ExtendedBlockchainService {
                         boolean isIdConflict = false;
                         if (e.getMessage() != null &&
                                 (e.getMessage().contains("already exists") ||
-                                        e.getMessage().contains("revert") && e.getMessage().contains("Item ID already exists"))) {
+                                        e.getMessage().contains("revert") && e.getMessage().contains("Item ID already exists") ||
+                                        // Receipts carry no revert reason; a fresh createItem reverts on a taken ID
+                                        e.getMessage().contains("reverted with status"))) {
                             isIdConflict = true;
                         }
 
@@ -598,10 +600,9 @@ public class ExtendedBlockchainService {
                             BlockchainTransaction tx = new BlockchainTransaction();
                             tx.setFunction("updateItemStatus");
                             tx.setParameters(item.getBlockchainItemId() + "," + rejectedStatus + "," + customerId);
-                            tx.setStatus("PENDING");
-                            tx.setCreatedAt(Instant.now());
-                            tx.setRetryCount(0);
-                            transactionRepository.save(tx);
+                            tx.setItemId(item.getBlockchainItemId());
+                            tx.setStatusCode(rejectedStatus);
+                            tx.setUserId(customerId);
 
                             // Call the updateItemStatus method on the blockchain
                             RemoteFunctionCall<TransactionReceipt> functionCall =
@@ -611,15 +612,8 @@ public class ExtendedBlockchainService {
                                             BigInteger.valueOf(customerId)                   // ownerId
                                     );
 
-                            // Send the transaction
-                            TransactionReceipt receipt = functionCall.send();
-                            lastTxHash = receipt.getTransactionHash();
-
-                            // Update transaction record
-                            tx.setTransactionHash(lastTxHash);
-                            tx.setStatus("CONFIRMED");
-                            tx.setConfirmedAt(Instant.now());
-                            transactionRepository.save(tx);
+                            // Send through the outbox and wait for it to be mined
+                            lastTxHash = outboxService.enqueue(tx, functionCall).join();
 
                             System.out.println("Cancelled blockchain item " + item.getBlockchainItemId() +
                                     " for order " + orderId +
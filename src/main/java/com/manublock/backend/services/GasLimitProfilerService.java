@@ -0,0 +1,279 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.contracts.contract.SmartContract;
+import com.manublock.backend.models.BlockchainTransaction;
+import com.manublock.backend.repositories.BlockchainTransactionRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthEstimateGas;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gas limits per contract function and input shape, learned from the gasUsed of mined receipts.
+ * Shapes that have not been seen yet are sized with eth_estimateGas. Both get a safety margin,
+ * replacing the fixed 700k limit that overpaid for small calls and starved large processItem calls.
+ */
+@Service
+public class GasLimitProfilerService {
+    private static final Logger LOGGER = Logger.getLogger(GasLimitProfilerService.class.getName());
+
+    private static final BigInteger DEFAULT_GAS_LIMIT = BigInteger.valueOf(700_000);
+    private static final long MIN_GAS_LIMIT = 21_000;
+    private static final int SAMPLES_PER_PROFILE = 20;
+
+    // Selector -> function name for the writes this backend sends, so the profile key is the
+    // function actually called rather than the label on the transaction record
+    private static final Map<String, String> FUNCTION_BY_SELECTOR = new HashMap<>();
+
+    static {
+        registerSelector(SmartContract.FUNC_AUTHORIZEPARTICIPANT, "authorizeParticipant(uint256,uint256)");
+        registerSelector(SmartContract.FUNC_CREATEITEM, "createItem(uint256,uint256,uint256,string,uint256)");
+        registerSelector(SmartContract.FUNC_CREATESUPPLYCHAIN, "createSupplyChain(uint256,uint256)");
+        registerSelector(SmartContract.FUNC_DEACTIVATEITEM, "deactivateItem(uint256,uint256)");
+        registerSelector(SmartContract.FUNC_PROCESSITEM, "processItem(uint256[],uint256,uint256[],uint256,string,uint256)");
+        registerSelector(SmartContract.FUNC_TRANSFERITEM, "transferItem(uint256,uint256,uint256,string,uint256)");
+        registerSelector(SmartContract.FUNC_UPDATEITEMSTATUS, "updateItemStatus(uint256,uint8,uint256)");
+    }
+
+    private static void registerSelector(String name, String signature) {
+        FUNCTION_BY_SELECTOR.put(Hash.sha3String(signature).substring(0, 10), name);
+    }
+
+    private final Web3j web3j;
+    private final BlockchainTransactionRepository transactionRepository;
+    private final String fromAddress;
+    private final String contractAddress;
+
+    private final Map<String, GasProfile> profiles = new ConcurrentHashMap<>();
+
+    @Value("${blockchain.gas.limit-margin-percent:25}")
+    private int marginPercent;
+
+    // Never go above this, whatever was learned or estimated
+    @Value("${blockchain.gas.max-limit:6000000}")
+    private long maxGasLimit;
+
+    @Autowired
+    public GasLimitProfilerService(
+            Web3j web3j,
+            Credentials credentials,
+            BlockchainTransactionRepository transactionRepository,
+            @Value("${blockchain.contract.address}") String contractAddress) {
+        this.web3j = web3j;
+        this.transactionRepository = transactionRepository;
+        this.fromAddress = credentials.getAddress();
+        this.contractAddress = contractAddress;
+    }
+
+    /**
+     * Seeds the profiles from the gasUsed recorded on recently confirmed transactions
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            int loaded = 0;
+            for (BlockchainTransaction tx : transactionRepository.findTop1000ByGasUsedIsNotNullOrderByIdDesc()) {
+                if (tx.getGasProfileKey() != null) {
+                    profileFor(tx.getGasProfileKey()).record(tx.getGasUsed());
+                    loaded++;
+                }
+            }
+            LOGGER.info("Loaded " + loaded + " gas samples across " + profiles.size() + " function shapes");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not load gas usage history", e);
+        }
+    }
+
+    /**
+     * Profile key for a call: function name plus input count, which is the number of
+     * source items for processItem and 0 for the fixed-size functions
+     */
+    public String profileKey(String encodedFunction) {
+        if (encodedFunction == null || encodedFunction.length() < 10) {
+            return "unknown/0";
+        }
+        String selector = encodedFunction.substring(0, 10).toLowerCase();
+        String name = FUNCTION_BY_SELECTOR.getOrDefault(selector, selector);
+
+        int inputCount = 0;
+        if (SmartContract.FUNC_PROCESSITEM.equals(name)) {
+            inputCount = firstArrayLength(encodedFunction);
+        }
+        return name + "/" + inputCount;
+    }
+
+    /**
+     * Gas limit for an encoded call: the largest recent gasUsed for its shape plus the margin,
+     * or an eth_estimateGas result plus the margin for shapes without history
+     */
+    public BigInteger getGasLimit(String encodedFunction) {
+        GasProfile profile = profileFor(profileKey(encodedFunction));
+
+        long learned = profile.maxRecent();
+        if (learned > 0) {
+            return withFloor(withMargin(learned), profile);
+        }
+        if (profile.estimate > 0) {
+            return withFloor(withMargin(profile.estimate), profile);
+        }
+
+        long estimate = estimateGas(encodedFunction);
+        if (estimate > 0) {
+            profile.estimate = estimate;
+            return withFloor(withMargin(estimate), profile);
+        }
+        return withFloor(DEFAULT_GAS_LIMIT, profile);
+    }
+
+    /**
+     * Largest learned limit for a function regardless of input shape, for callers
+     * that only know the function name
+     */
+    public BigInteger getGasLimitForFunction(String functionName) {
+        long learned = 0;
+        long floor = 0;
+        for (Map.Entry<String, GasProfile> entry : profiles.entrySet()) {
+            if (entry.getKey().startsWith(functionName + "/")) {
+                learned = Math.max(learned, entry.getValue().maxRecent());
+                floor = Math.max(floor, entry.getValue().floor());
+            }
+        }
+        BigInteger limit = learned > 0 ? withMargin(learned) : DEFAULT_GAS_LIMIT;
+        return limit.max(BigInteger.valueOf(floor));
+    }
+
+    /**
+     * Feeds the gas used by a mined transaction back into its profile
+     */
+    public void recordGasUsed(String encodedFunction, BigInteger gasUsed) {
+        if (gasUsed != null && gasUsed.signum() > 0) {
+            profileFor(profileKey(encodedFunction)).record(gasUsed.longValue());
+        }
+    }
+
+    /**
+     * A revert that burned the whole limit is most likely out of gas:
+     * make sure the next attempt gets half as much again. The raised limit is kept as a
+     * floor beside the samples, not as a sample, so it never passes for a real gasUsed
+     * and decays as successful receipts come in.
+     */
+    public void recordOutOfGas(String encodedFunction, BigInteger gasLimit) {
+        long raised = Math.min(maxGasLimit, gasLimit.longValue() * 3 / 2);
+        GasProfile profile = profileFor(profileKey(encodedFunction));
+        profile.raiseFloor(raised);
+        LOGGER.warning("Probable out-of-gas for " + profileKey(encodedFunction) + ", raising limit to " + raised);
+    }
+
+    /**
+     * Learned limits per function shape, for monitoring
+     */
+    public Map<String, Object> getProfiles() {
+        Map<String, Object> result = new TreeMap<>();
+        profiles.forEach((key, profile) -> {
+            Map<String, Object> info = new HashMap<>();
+            info.put("maxRecentGasUsed", profile.maxRecent());
+            info.put("estimate", profile.estimate);
+            info.put("samples", profile.sampleCount());
+            info.put("outOfGasFloor", profile.floor());
+            result.put(key, info);
+        });
+        return result;
+    }
+
+    private GasProfile profileFor(String key) {
+        return profiles.computeIfAbsent(key, k -> new GasProfile());
+    }
+
+    private BigInteger withMargin(long gas) {
+        long limit = gas * (100 + marginPercent) / 100;
+        return BigInteger.valueOf(Math.max(MIN_GAS_LIMIT, Math.min(maxGasLimit, limit)));
+    }
+
+    private static BigInteger withFloor(BigInteger limit, GasProfile profile) {
+        return limit.max(BigInteger.valueOf(profile.floor()));
+    }
+
+    private long estimateGas(String encodedFunction) {
+        try {
+            EthEstimateGas response = web3j.ethEstimateGas(
+                    Transaction.createEthCallTransaction(fromAddress, contractAddress, encodedFunction)).send();
+            if (response.hasError()) {
+                LOGGER.fine("eth_estimateGas failed for " + profileKey(encodedFunction) + ": " + response.getError().getMessage());
+                return 0;
+            }
+            return response.getAmountUsed().longValue();
+        } catch (Exception e) {
+            LOGGER.fine("eth_estimateGas failed for " + profileKey(encodedFunction) + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Length of the array whose offset is in the first argument word
+     */
+    private static int firstArrayLength(String encodedFunction) {
+        try {
+            String args = encodedFunction.substring(10);
+            int offsetBytes = new BigInteger(args.substring(0, 64), 16).intValueExact();
+            int lengthStart = offsetBytes * 2;
+            return new BigInteger(args.substring(lengthStart, lengthStart + 64), 16).intValueExact();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Sliding window of recent gasUsed values for one function shape, plus the limit
+     * raised after an out-of-gas failure
+     */
+    private static class GasProfile {
+        private final Deque<Long> samples = new ArrayDeque<>();
+        private volatile long estimate;
+        private long floor;
+
+        synchronized void record(long gasUsed) {
+            samples.addLast(gasUsed);
+            if (samples.size() > SAMPLES_PER_PROFILE) {
+                samples.removeFirst();
+            }
+            // A call of this shape fit, so the window now carries a real figure: shrink the floor by
+            // a quarter per success until the margin on the samples takes over
+            floor = floor * 3 / 4;
+        }
+
+        synchronized void raiseFloor(long limit) {
+            floor = Math.max(floor, limit);
+        }
+
+        synchronized long floor() {
+            return floor;
+        }
+
+        synchronized long maxRecent() {
+            long max = 0;
+            for (long sample : samples) {
+                max = Math.max(max, sample);
+            }
+            return max;
+        }
+
+        synchronized int sampleCount() {
+            return samples.size();
+        }
+    }
+}
@@ -0,0 +1,911 @@
+package com.manublock.backend.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process index of the item_parents graph for provenance lookups that must not touch the database.
+ *
+ * The graph is stored in compressed sparse row form in a memory-mapped file: the sorted item ids,
+ * then for each direction (parents and children) a long offsets array and a long targets array,
+ * so the neighbours of the item at index i are targets[offsets[i]] .. targets[offsets[i + 1] - 1].
+ * Links added after the file was written live in a small sorted overlay that is also appended to a
+ * delta log; once the overlay passes the merge threshold it is folded into a new CSR file in the
+ * background, while new links go to a fresh overlay.
+ * A restart maps the file and replays the log instead of reading item_parents again; the index is
+ * only rebuilt from the database when the files are missing or disagree with the table.
+ *
+ * Readers hold the read lock for a whole traversal. Writers take the write lock only to insert into
+ * the overlay or to swap in a new base; reading the table, building the CSR and file I/O happen
+ * outside it. Traversals reuse a per-thread visited set and queue, so the only allocation is the
+ * result sized to what was found.
+ */
+@Service
+public class ItemLineageIndex {
+    private static final Logger LOGGER = Logger.getLogger(ItemLineageIndex.class.getName());
+
+    private static final long MAGIC = 0x4d42_4c49_4e45_4147L; // "MBLINEAG"
+    private static final long FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int DELTA_HEADER_BYTES = 16;
+    private static final int DELTA_RECORD_BYTES = 16;
+    private static final int BUILD_FETCH_SIZE = 10000;
+    static final String BASE_FILE = "lineage.csr";
+    static final String DELTA_FILE = "lineage.delta";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Path directory;
+    private final int mergeThreshold;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock; merging holds the links being folded into the next base, if any
+    private Base base = Base.empty();
+    private Overlay merging;
+    private Overlay overlay = new Overlay();
+    private volatile boolean ready;
+
+    // Writer state, guarded by this. Links recorded before the index is first installed wait in pending.
+    private LongList pendingChildren = new LongList();
+    private LongList pendingParents = new LongList();
+    private FileChannel deltaLog;
+
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "lineage-index-merger");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadLocal<Traversal> traversals = ThreadLocal.withInitial(Traversal::new);
+
+    @Autowired
+    public ItemLineageIndex(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${tracing.lineage-index.dir:lineage-index}") String directory,
+            @Value("${tracing.lineage-index.merge-threshold:4096}") int mergeThreshold,
+            @Value("${tracing.lineage-index.enabled:true}") boolean enabled) {
+        // Own template so the fetch size does not leak into other JdbcTemplate users
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(BUILD_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.directory = Paths.get(directory);
+        this.mergeThreshold = mergeThreshold;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::loadOrBuild, "lineage-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ancestors of an item up to maxDepth hops away, nearest first
+     * @return at most limit item ids
+     */
+    public long[] ancestors(long itemId, int maxDepth, int limit) {
+        return traverse(itemId, maxDepth, limit, true);
+    }
+
+    /**
+     * Descendants of an item up to maxDepth hops away, nearest first
+     * @return at most limit item ids
+     */
+    public long[] descendants(long itemId, int maxDepth, int limit) {
+        return traverse(itemId, maxDepth, limit, false);
+    }
+
+    /**
+     * Records parent links written to item_parents; links already in the index are ignored
+     */
+    public synchronized void addLinks(long itemId, Collection<Long> parentIds) {
+        if (!enabled || parentIds == null || parentIds.isEmpty()) {
+            return;
+        }
+        if (!ready) {
+            for (Long parentId : parentIds) {
+                pendingChildren.add(itemId);
+                pendingParents.add(parentId);
+            }
+            return;
+        }
+
+        // Only writers change the overlay and the base, and they hold this monitor, so no read lock is needed here
+        IOException logFailure = null;
+        for (Long parentId : parentIds) {
+            if (containsLink(itemId, parentId)) {
+                continue;
+            }
+            try {
+                appendDelta(itemId, parentId);
+            } catch (IOException e) {
+                // The log is behind the overlay now; the count check rebuilds the index on the next start
+                logFailure = e;
+            }
+            lock.writeLock().lock();
+            try {
+                overlay.add(itemId, parentId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (logFailure != null) {
+            LOGGER.log(Level.WARNING, "Failed to persist lineage index links of item " + itemId, logFailure);
+        }
+        if (overlay.size >= mergeThreshold && merging == null) {
+            startMerge();
+        }
+    }
+
+    private void loadOrBuild() {
+        try {
+            Loaded loaded = loadFromFiles();
+            if (loaded != null) {
+                // Catch links written while no index was running, or lost by a failed log write
+                Long distinctLinks = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM (SELECT DISTINCT item_id, parent_id FROM item_parents) l", Long.class);
+                if (distinctLinks != null && distinctLinks == loaded.edgeCount()) {
+                    installLoaded(loaded);
+                    LOGGER.info("Loaded lineage index: " + loaded.base.nodeCount + " items, " +
+                            loaded.edgeCount() + " links");
+                    return;
+                }
+                LOGGER.info("Lineage index has " + loaded.edgeCount() + " links but item_parents has " +
+                        distinctLinks + ", rebuilding");
+            }
+            rebuild();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to load or build the lineage index", e);
+        }
+    }
+
+    /**
+     * Builds the index from item_parents and replaces the files. Links recorded meanwhile are
+     * buffered as pending and applied once the new base is installed.
+     */
+    private void rebuild() throws IOException {
+        LongList children = new LongList();
+        LongList parents = new LongList();
+        readOnlyTransaction.executeWithoutResult(status ->
+                jdbcTemplate.query("SELECT item_id, parent_id FROM item_parents", rs -> {
+                    children.add(rs.getLong(1));
+                    parents.add(rs.getLong(2));
+                }));
+        build(children, parents);
+        LOGGER.info("Built lineage index from item_parents: " + children.size + " rows");
+    }
+
+    /**
+     * Writes a new base from the given links and installs it with an empty overlay
+     */
+    void build(LongList children, LongList parents) throws IOException {
+        Base built = writeBase(Csr.build(children, parents));
+        synchronized (this) {
+            openDeltaLog(built.generation, true);
+            swap(built, null, new Overlay());
+            markReady();
+        }
+    }
+
+    void installLoaded(Loaded loaded) throws IOException {
+        synchronized (this) {
+            openDeltaLog(loaded.base.generation, false);
+            swap(loaded.base, null, loaded.overlay);
+            markReady();
+            if (overlay.size >= mergeThreshold && merging == null) {
+                startMerge();
+            }
+        }
+    }
+
+    /**
+     * Whether an overlay is being folded into a new base
+     */
+    synchronized boolean isMerging() {
+        return merging != null;
+    }
+
+    private long[] traverse(long start, int maxDepth, int limit, boolean up) {
+        Traversal t = traversals.get();
+        t.reset(limit);
+        t.visit(start);
+
+        lock.readLock().lock();
+        try {
+            expand(start, up, t);
+            // The queue is breadth-first; [levelStart, levelEnd) is the current level
+            int levelStart = 0;
+            int levelEnd = t.count;
+            for (int depth = 1; depth < maxDepth && levelStart < levelEnd && !t.isFull(); depth++) {
+                for (int i = levelStart; i < levelEnd && !t.isFull(); i++) {
+                    expand(t.queue[i], up, t);
+                }
+                levelStart = levelEnd;
+                levelEnd = t.count;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Arrays.copyOf(t.queue, t.count);
+    }
+
+    // Called with the read lock held
+    private void expand(long node, boolean up, Traversal t) {
+        base.expand(node, up, t);
+        if (merging != null) {
+            merging.expand(node, up, t);
+        }
+        overlay.expand(node, up, t);
+    }
+
+    private boolean containsLink(long child, long parent) {
+        return base.hasLink(child, parent) ||
+                (merging != null && merging.contains(child, parent)) ||
+                overlay.contains(child, parent);
+    }
+
+    // Called with this monitor held
+    private void swap(Base newBase, Overlay newMerging, Overlay newOverlay) {
+        lock.writeLock().lock();
+        try {
+            base = newBase;
+            merging = newMerging;
+            overlay = newOverlay;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called with this monitor held
+    private void markReady() {
+        if (ready) {
+            return;
+        }
+        ready = true;
+        LongList children = pendingChildren;
+        LongList parents = pendingParents;
+        pendingChildren = new LongList();
+        pendingParents = new LongList();
+        for (int i = 0; i < children.size; i++) {
+            addLinks(children.values[i], Arrays.asList(parents.values[i]));
+        }
+    }
+
+    /**
+     * Freezes the overlay and folds it into a new base on the merger thread. Links added
+     * meanwhile go to a fresh overlay and to the current log, and are carried over to the
+     * new log when the base is swapped. Called with this monitor held.
+     */
+    private void startMerge() {
+        Base mergeBase = base;
+        Overlay frozen = overlay;
+        swap(mergeBase, frozen, new Overlay());
+        merger.execute(() -> fold(mergeBase, frozen));
+    }
+
+    private void fold(Base mergeBase, Overlay frozen) {
+        try {
+            LongList children = new LongList();
+            LongList parents = new LongList();
+            mergeBase.collectLinks(children, parents);
+            frozen.collectLinks(children, parents);
+            Base merged = writeBase(Csr.build(children, parents));
+
+            synchronized (this) {
+                openDeltaLog(merged.generation, true);
+                for (int i = 0; i < overlay.size; i++) {
+                    appendDelta(overlay.childKeys[i], overlay.childParents[i]);
+                }
+                swap(merged, null, overlay);
+            }
+            LOGGER.info("Merged lineage index overlay: " + mergeBase.nodeCount + " -> " + merged.nodeCount + " items");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to merge the lineage index overlay", e);
+            synchronized (this) {
+                // Keep serving the frozen links from the overlay; the next merge tries again
+                Overlay restored = new Overlay();
+                frozen.copyInto(restored);
+                overlay.copyInto(restored);
+                swap(mergeBase, null, restored);
+            }
+        }
+    }
+
+    private Base writeBase(Csr csr) throws IOException {
+        Files.createDirectories(directory);
+        long generation = ThreadLocalRandom.current().nextLong();
+        Path target = directory.resolve(BASE_FILE);
+        Path temp = directory.resolve(BASE_FILE + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putLong(FORMAT_VERSION).putLong(generation)
+                    .putLong(csr.nodeIds.length).putLong(csr.parentTargets.length);
+            header.clear();
+            channel.write(header, 0);
+
+            long position = HEADER_BYTES;
+            for (long[] section : csr.sections()) {
+                LongBuffer mapped = mapSection(channel, FileChannel.MapMode.READ_WRITE, position, section.length);
+                mapped.put(section);
+                position += (long) section.length * Long.BYTES;
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Base written = mapBase(target);
+        if (written == null) {
+            throw new IOException("Lineage index file " + target + " could not be read back");
+        }
+        return written;
+    }
+
+    /**
+     * Maps the base file and replays the delta log written for it into an overlay
+     * @return null if there is no usable base file
+     */
+    Loaded loadFromFiles() throws IOException {
+        Path basePath = directory.resolve(BASE_FILE);
+        if (!Files.exists(basePath)) {
+            return null;
+        }
+        Base mapped = mapBase(basePath);
+        if (mapped == null) {
+            return null;
+        }
+
+        Overlay replayed = new Overlay();
+        Path delta = directory.resolve(DELTA_FILE);
+        if (Files.exists(delta)) {
+            try (FileChannel channel = FileChannel.open(delta, StandardOpenOption.READ)) {
+                long size = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(DELTA_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                header.flip();
+                // A log written for another base was already merged into this one
+                if (size >= DELTA_HEADER_BYTES && header.getLong() == MAGIC && header.getLong() == mapped.generation) {
+                    // A torn last record from a crash is ignored
+                    long records = (size - DELTA_HEADER_BYTES) / DELTA_RECORD_BYTES;
+                    ByteBuffer record = ByteBuffer.allocate(DELTA_RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    for (long i = 0; i < records; i++) {
+                        record.clear();
+                        channel.read(record, DELTA_HEADER_BYTES + i * DELTA_RECORD_BYTES);
+                        record.flip();
+                        long child = record.getLong();
+                        long parent = record.getLong();
+                        if (!mapped.hasLink(child, parent) && !replayed.contains(child, parent)) {
+                            replayed.add(child, parent);
+                        }
+                    }
+                }
+            }
+        }
+        return new Loaded(mapped, replayed);
+    }
+
+    private static Base mapBase(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC || header.getLong() != FORMAT_VERSION) {
+                LOGGER.warning("Ignoring lineage index file with an unknown format: " + path);
+                return null;
+            }
+            long generation = header.getLong();
+            int nodeCount = Math.toIntExact(header.getLong());
+            int edgeCount = Math.toIntExact(header.getLong());
+
+            // The mappings stay valid after the channel is closed
+            long position = HEADER_BYTES;
+            LongBuffer nodeIds = mapSection(channel, FileChannel.MapMode.READ_ONLY, position, nodeCount);
+            position += (long) nodeCount * Long.BYTES;
+            LongBuffer parentOffsets = mapSection(channel, FileChannel.MapMode.READ_ONLY, position, nodeCount + 1);
+            position += (long) (nodeCount + 1) * Long.BYTES;
+            LongBuffer parentTargets = mapSection(channel, FileChannel.MapMode.READ_ONLY, position, edgeCount);
+            position += (long) edgeCount * Long.BYTES;
+            LongBuffer childOffsets = mapSection(channel, FileChannel.MapMode.READ_ONLY, position, nodeCount + 1);
+            position += (long) (nodeCount + 1) * Long.BYTES;
+            LongBuffer childTargets = mapSection(channel, FileChannel.MapMode.READ_ONLY, position, edgeCount);
+
+            return new Base(generation, nodeCount, nodeIds, parentOffsets, parentTargets, childOffsets, childTargets);
+        }
+    }
+
+    private static LongBuffer mapSection(FileChannel channel, FileChannel.MapMode mode, long position, int length)
+            throws IOException {
+        long bytes = (long) length * Long.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Lineage index section of " + length + " entries exceeds a single mapping");
+        }
+        return channel.map(mode, position, bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    // Called with this monitor held
+    private void openDeltaLog(long generation, boolean reset) throws IOException {
+        if (deltaLog != null) {
+            deltaLog.close();
+        }
+        Files.createDirectories(directory);
+        Path path = directory.resolve(DELTA_FILE);
+        deltaLog = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(DELTA_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        boolean matches = false;
+        if (!reset && deltaLog.size() >= DELTA_HEADER_BYTES) {
+            deltaLog.read(header, 0);
+            header.flip();
+            matches = header.getLong() == MAGIC && header.getLong() == generation;
+        }
+        if (matches) {
+            // Drop a torn last record so appends stay aligned
+            long records = (deltaLog.size() - DELTA_HEADER_BYTES) / DELTA_RECORD_BYTES;
+            deltaLog.truncate(DELTA_HEADER_BYTES + records * DELTA_RECORD_BYTES);
+        } else {
+            deltaLog.truncate(0);
+            header.clear();
+            header.putLong(MAGIC).putLong(generation).flip();
+            deltaLog.write(header, 0);
+        }
+        deltaLog.position(deltaLog.size());
+        deltaLog.force(true);
+    }
+
+    // Called with this monitor held
+    private void appendDelta(long child, long parent) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(DELTA_RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        record.putLong(child).putLong(parent).flip();
+        while (record.hasRemaining()) {
+            deltaLog.write(record);
+        }
+        deltaLog.force(false);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        merger.shutdownNow();
+        try {
+            if (deltaLog != null) {
+                deltaLog.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to close lineage index log", e);
+        }
+    }
+
+    /**
+     * A mapped base file with the overlay replayed from its delta log
+     */
+    static final class Loaded {
+        private final Base base;
+        private final Overlay overlay;
+
+        Loaded(Base base, Overlay overlay) {
+            this.base = base;
+            this.overlay = overlay;
+        }
+
+        long edgeCount() {
+            return base.edgeCount() + overlay.size;
+        }
+    }
+
+    /**
+     * The mapped CSR arrays of one base file; never modified once mapped
+     */
+    static final class Base {
+        private final long generation;
+        private final int nodeCount;
+        private final LongBuffer nodeIds;
+        private final LongBuffer parentOffsets;
+        private final LongBuffer parentTargets;
+        private final LongBuffer childOffsets;
+        private final LongBuffer childTargets;
+
+        Base(long generation, int nodeCount, LongBuffer nodeIds, LongBuffer parentOffsets,
+             LongBuffer parentTargets, LongBuffer childOffsets, LongBuffer childTargets) {
+            this.generation = generation;
+            this.nodeCount = nodeCount;
+            this.nodeIds = nodeIds;
+            this.parentOffsets = parentOffsets;
+            this.parentTargets = parentTargets;
+            this.childOffsets = childOffsets;
+            this.childTargets = childTargets;
+        }
+
+        static Base empty() {
+            LongBuffer none = LongBuffer.allocate(0);
+            LongBuffer zero = LongBuffer.wrap(new long[1]);
+            return new Base(0, 0, none, zero, none, zero, none);
+        }
+
+        long edgeCount() {
+            return parentTargets.limit();
+        }
+
+        int indexOf(long itemId) {
+            int low = 0;
+            int high = nodeCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = nodeIds.get(mid);
+                if (id < itemId) {
+                    low = mid + 1;
+                } else if (id > itemId) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Offers the parents (up) or children of node to the traversal
+         */
+        void expand(long node, boolean up, Traversal t) {
+            int index = indexOf(node);
+            if (index < 0) {
+                return;
+            }
+            LongBuffer offsets = up ? parentOffsets : childOffsets;
+            LongBuffer targets = up ? parentTargets : childTargets;
+            int end = (int) offsets.get(index + 1);
+            for (int e = (int) offsets.get(index); e < end && !t.isFull(); e++) {
+                t.offer(targets.get(e));
+            }
+        }
+
+        boolean hasLink(long child, long parent) {
+            int index = indexOf(child);
+            if (index < 0) {
+                return false;
+            }
+            // Targets of each node are sorted
+            int low = (int) parentOffsets.get(index);
+            int high = (int) parentOffsets.get(index + 1) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long target = parentTargets.get(mid);
+                if (target < parent) {
+                    low = mid + 1;
+                } else if (target > parent) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void collectLinks(LongList children, LongList parents) {
+            for (int i = 0; i < nodeCount; i++) {
+                long child = nodeIds.get(i);
+                int end = (int) parentOffsets.get(i + 1);
+                for (int e = (int) parentOffsets.get(i); e < end; e++) {
+                    children.add(child);
+                    parents.add(parentTargets.get(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * Links added since the base was written, kept twice in parallel arrays: sorted by
+     * (child, parent) for ancestors and by (parent, child) for descendants. Inserts shift in
+     * place under the write lock; the merge threshold keeps the arrays small.
+     */
+    static final class Overlay {
+        private long[] childKeys = new long[64];
+        private long[] childParents = new long[64];
+        private long[] parentKeys = new long[64];
+        private long[] parentChildren = new long[64];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(long child, long parent) {
+            if (size == childKeys.length) {
+                int capacity = size * 2;
+                childKeys = Arrays.copyOf(childKeys, capacity);
+                childParents = Arrays.copyOf(childParents, capacity);
+                parentKeys = Arrays.copyOf(parentKeys, capacity);
+                parentChildren = Arrays.copyOf(parentChildren, capacity);
+            }
+            insert(childKeys, childParents, size, child, parent);
+            insert(parentKeys, parentChildren, size, parent, child);
+            size++;
+        }
+
+        boolean contains(long child, long parent) {
+            int at = lowerBound(childKeys, childParents, size, child, parent);
+            return at < size && childKeys[at] == child && childParents[at] == parent;
+        }
+
+        void expand(long node, boolean up, Traversal t) {
+            long[] keys = up ? childKeys : parentKeys;
+            long[] values = up ? childParents : parentChildren;
+            for (int d = lowerBound(keys, values, size, node, Long.MIN_VALUE);
+                 d < size && keys[d] == node && !t.isFull(); d++) {
+                t.offer(values[d]);
+            }
+        }
+
+        void collectLinks(LongList children, LongList parents) {
+            for (int i = 0; i < size; i++) {
+                children.add(childKeys[i]);
+                parents.add(childParents[i]);
+            }
+        }
+
+        void copyInto(Overlay target) {
+            for (int i = 0; i < size; i++) {
+                if (!target.contains(childKeys[i], childParents[i])) {
+                    target.add(childKeys[i], childParents[i]);
+                }
+            }
+        }
+
+        private static void insert(long[] keys, long[] values, int size, long key, long value) {
+            int at = lowerBound(keys, values, size, key, value);
+            System.arraycopy(keys, at, keys, at + 1, size - at);
+            System.arraycopy(values, at, values, at + 1, size - at);
+            keys[at] = key;
+            values[at] = value;
+        }
+
+        /**
+         * First position whose (key, value) is not below the given pair
+         */
+        private static int lowerBound(long[] keys, long[] values, int size, long key, long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key || (keys[mid] == key && values[mid] < value)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * CSR arrays built on the heap before they are written out
+     */
+    static final class Csr {
+        final long[] nodeIds;
+        final long[] parentOffsets;
+        final long[] parentTargets;
+        final long[] childOffsets;
+        final long[] childTargets;
+
+        private Csr(long[] nodeIds, long[] parentOffsets, long[] parentTargets, long[] childOffsets, long[] childTargets) {
+            this.nodeIds = nodeIds;
+            this.parentOffsets = parentOffsets;
+            this.parentTargets = parentTargets;
+            this.childOffsets = childOffsets;
+            this.childTargets = childTargets;
+        }
+
+        long[][] sections() {
+            return new long[][]{nodeIds, parentOffsets, parentTargets, childOffsets, childTargets};
+        }
+
+        /**
+         * Builds both directions with counting sorts over the (child, parent) pairs, dropping duplicate links
+         */
+        static Csr build(LongList children, LongList parents) {
+            int links = children.size;
+
+            long[] ids = new long[links * 2];
+            System.arraycopy(children.values, 0, ids, 0, links);
+            System.arraycopy(parents.values, 0, ids, links, links);
+            Arrays.sort(ids);
+            int nodeCount = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) {
+                    ids[nodeCount++] = ids[i];
+                }
+            }
+            long[] nodeIds = Arrays.copyOf(ids, nodeCount);
+
+            long[] parentOffsets = new long[nodeCount + 1];
+            int[] childIndex = new int[links];
+            for (int i = 0; i < links; i++) {
+                childIndex[i] = Arrays.binarySearch(nodeIds, children.values[i]);
+                parentOffsets[childIndex[i] + 1]++;
+            }
+            prefixSum(parentOffsets);
+            long[] parentTargets = new long[links];
+            long[] cursor = Arrays.copyOf(parentOffsets, nodeCount);
+            for (int i = 0; i < links; i++) {
+                parentTargets[(int) cursor[childIndex[i]]++] = parents.values[i];
+            }
+            parentTargets = sortAndDeduplicate(parentOffsets, parentTargets);
+
+            // Children are derived from the deduplicated parent lists so both directions agree
+            long[] childOffsets = new long[nodeCount + 1];
+            for (long parent : parentTargets) {
+                childOffsets[Arrays.binarySearch(nodeIds, parent) + 1]++;
+            }
+            prefixSum(childOffsets);
+            long[] childTargets = new long[parentTargets.length];
+            cursor = Arrays.copyOf(childOffsets, nodeCount);
+            for (int child = 0; child < nodeCount; child++) {
+                for (int e = (int) parentOffsets[child]; e < parentOffsets[child + 1]; e++) {
+                    int parent = Arrays.binarySearch(nodeIds, parentTargets[e]);
+                    childTargets[(int) cursor[parent]++] = nodeIds[child];
+                }
+            }
+            // Filled in ascending child order, so each list is already sorted
+
+            return new Csr(nodeIds, parentOffsets, parentTargets, childOffsets, childTargets);
+        }
+
+        private static void prefixSum(long[] offsets) {
+            for (int i = 1; i < offsets.length; i++) {
+                offsets[i] += offsets[i - 1];
+            }
+        }
+
+        /**
+         * Sorts each node's targets and removes repeats in place, rewriting the offsets
+         */
+        private static long[] sortAndDeduplicate(long[] offsets, long[] targets) {
+            int write = 0;
+            long start = offsets[0];
+            for (int node = 0; node < offsets.length - 1; node++) {
+                long end = offsets[node + 1];
+                Arrays.sort(targets, (int) start, (int) end);
+                offsets[node] = write;
+                for (int e = (int) start; e < end; e++) {
+                    if (e == start || targets[e] != targets[e - 1]) {
+                        targets[write++] = targets[e];
+                    }
+                }
+                start = end;
+            }
+            offsets[offsets.length - 1] = write;
+            return Arrays.copyOf(targets, write);
+        }
+    }
+
+    /**
+     * Per-thread traversal state: a breadth-first queue of found ids that grows up to the
+     * limit, and a visited set with open addressing over primitive ids, cleared by bumping a stamp
+     */
+    static final class Traversal {
+        private long[] keys = new long[1024];
+        private int[] stamps = new int[1024];
+        private int stamp;
+        private int size;
+        long[] queue = new long[256];
+        int count;
+        private int limit;
+
+        void reset(int limit) {
+            this.limit = limit;
+            count = 0;
+            size = 0;
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+        }
+
+        boolean isFull() {
+            return count >= limit;
+        }
+
+        /**
+         * Queues the id unless it was visited already or the limit is reached
+         */
+        void offer(long id) {
+            if (count < limit && visit(id)) {
+                if (count == queue.length) {
+                    queue = Arrays.copyOf(queue, Math.min(limit, queue.length * 2));
+                }
+                queue[count++] = id;
+            }
+        }
+
+        /**
+         * @return true if the id was not visited yet
+         */
+        boolean visit(long id) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = mix(id) & mask;
+            while (stamps[slot] == stamp) {
+                if (keys[slot] == id) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = id;
+            stamps[slot] = stamp;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldStamps = stamps;
+            int oldStamp = stamp;
+            keys = new long[oldKeys.length * 2];
+            stamps = new int[oldKeys.length * 2];
+            stamp = 1;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStamps[i] == oldStamp) {
+                    visit(oldKeys[i]);
+                }
+            }
+        }
+
+        private static int mix(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Growable primitive long list used while reading links
+     */
+    static final class LongList {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.models.Items;
+import com.manublock.backend.repositories.ItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-hop provenance over item_parents. A whole lineage is read with one recursive query
+ * and the items on it with one more, instead of following parentItemIds one hop at a time.
+ *
+ * The structure of each lineage (which items, how far, which links) is cached per (item,
+ * direction, depth); item fields such as status and owner change independently, so they are
+ * read fresh on every request. Any new parent link can change the descendants of every
+ * ancestor, so writers of item_parents call {@link #linksAdded} and the whole cache is
+ * dropped by moving to a new generation. The same call keeps the
+ * memory-mapped {@link ItemLineageIndex} current, which serves id-only lineages.
+ */
+@Service
+public class ItemLineageService {
+
+    public static final String UP = "up";
+    public static final String DOWN = "down";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemRepository itemRepository;
+    private final ItemLineageIndex lineageIndex;
+    private final int maxDepth;
+    private final Map<String, CachedLineage> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ItemLineageService(
+            JdbcTemplate jdbcTemplate,
+            ItemRepository itemRepository,
+            ItemLineageIndex lineageIndex,
+            @Value("${tracing.lineage.max-depth:50}") int maxDepth,
+            @Value("${tracing.lineage.cache-entries:2000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.itemRepository = itemRepository;
+        this.lineageIndex = lineageIndex;
+        this.maxDepth = maxDepth;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedLineage> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Ancestors (up) or descendants (down) of an item, up to depth hops away
+     * @return the item, every related item with its distance, and the parent links between them
+     */
+    public Map<String, Object> getLineage(Long itemId, String direction, int depth) {
+        if (!UP.equals(direction) && !DOWN.equals(direction)) {
+            throw new IllegalArgumentException("direction must be 'up' or 'down'");
+        }
+        if (depth < 1 || depth > maxDepth) {
+            throw new IllegalArgumentException("depth must be between 1 and " + maxDepth);
+        }
+
+        String key = itemId + ":" + direction + ":" + depth;
+        long currentGeneration = generation.get();
+        CachedLineage structure = cache.get(key);
+        if (structure == null || structure.generation != currentGeneration) {
+            structure = loadStructure(itemId, direction, depth, currentGeneration);
+            // Not stored if a write invalidated the cache while this was being read
+            if (generation.get() == currentGeneration) {
+                cache.put(key, structure);
+            }
+        }
+        return toLineage(itemId, direction, depth, structure);
+    }
+
+    /**
+     * Records new item_parents links: drops every cached lineage and adds the links to the
+     * lineage index once the current transaction commits (immediately if there is none)
+     */
+    public void linksAdded(Long itemId, Collection<Long> parentIds) {
+        List<Long> parents = parentIds != null ? new ArrayList<>(parentIds) : Collections.emptyList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                    lineageIndex.addLinks(itemId, parents);
+                }
+            });
+        } else {
+            lineageIndex.addLinks(itemId, parents);
+        }
+        // Also bump now so lineages read before the commit are not cached as current
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Ids of the ancestors (up) or descendants (down) of an item from the in-memory lineage index
+     * @return ids nearest first, at most limit of them, or null while the index is still loading
+     */
+    public long[] getLineageIds(Long itemId, String direction, int depth, int limit) {
+        if (!UP.equals(direction) && !DOWN.equals(direction)) {
+            throw new IllegalArgumentException("direction must be 'up' or 'down'");
+        }
+        if (depth < 1 || depth > maxDepth) {
+            throw new IllegalArgumentException("depth must be between 1 and " + maxDepth);
+        }
+        if (!lineageIndex.isReady()) {
+            return null;
+        }
+        return UP.equals(direction)
+                ? lineageIndex.ancestors(itemId, depth, limit)
+                : lineageIndex.descendants(itemId, depth, limit);
+    }
+
+    private CachedLineage loadStructure(Long itemId, String direction, int depth, long currentGeneration) {
+        // Going up, an item's related rows are its parents; going down, the items listing it as parent
+        String from = UP.equals(direction) ? "item_id" : "parent_id";
+        String to = UP.equals(direction) ? "parent_id" : "item_id";
+
+        // Recycling loops make the graph cyclic: the depth bound ends the recursion, and UNION
+        // (not UNION ALL) keeps each link at most once per depth, so the work stays links x depth
+        String sql = "WITH RECURSIVE lineage(item_id, parent_id, depth) AS (" +
+                "SELECT p.item_id, p.parent_id, 1 FROM item_parents p WHERE p." + from + " = ? " +
+                "UNION " +
+                "SELECT p.item_id, p.parent_id, l.depth + 1 FROM item_parents p " +
+                "JOIN lineage l ON p." + from + " = l." + to + " WHERE l.depth < ?) " +
+                "SELECT item_id, parent_id, MIN(depth) AS depth FROM lineage GROUP BY item_id, parent_id";
+
+        List<Map<String, Object>> links = new ArrayList<>();
+        Map<Long, Integer> distance = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            long child = rs.getLong("item_id");
+            long parent = rs.getLong("parent_id");
+            int hops = rs.getInt("depth");
+
+            Map<String, Object> link = new LinkedHashMap<>();
+            link.put("itemId", child);
+            link.put("parentId", parent);
+            links.add(Collections.unmodifiableMap(link));
+
+            long related = UP.equals(direction) ? parent : child;
+            if (related != itemId) {
+                distance.merge(related, hops, Math::min);
+            }
+        }, itemId, depth);
+
+        return new CachedLineage(currentGeneration, Collections.unmodifiableMap(distance),
+                Collections.unmodifiableList(links));
+    }
+
+    /**
+     * Reads the root and the related items in one query and attaches their current fields to the structure
+     */
+    private Map<String, Object> toLineage(Long itemId, String direction, int depth, CachedLineage structure) {
+        Set<Long> ids = new HashSet<>(structure.distance.keySet());
+        ids.add(itemId);
+
+        Items root = null;
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (Items item : itemRepository.findWithOwnerByIdIn(ids)) {
+            if (item.getId().equals(itemId)) {
+                root = item;
+                continue;
+            }
+            Map<String, Object> node = toNode(item);
+            node.put("depth", structure.distance.get(item.getId()));
+            nodes.add(node);
+        }
+        if (root == null) {
+            throw new RuntimeException("Item not found with ID: " + itemId);
+        }
+        nodes.sort((a, b) -> Integer.compare((Integer) a.get("depth"), (Integer) b.get("depth")));
+
+        Map<String, Object> lineage = new LinkedHashMap<>();
+        lineage.put("item", toNode(root));
+        lineage.put("direction", direction);
+        lineage.put("depth", depth);
+        lineage.put("items", nodes);
+        lineage.put("links", structure.links);
+        return lineage;
+    }
+
+    private static Map<String, Object> toNode(Items item) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("id", item.getId());
+        node.put("name", item.getName());
+        node.put("itemType", item.getItemType());
+        node.put("quantity", item.getQuantity());
+        node.put("status", item.getStatus());
+        if (item.getOwner() != null) {
+            node.put("ownerId", item.getOwner().getId());
+            node.put("ownerName", item.getOwner().getUsername());
+        }
+        return node;
+    }
+
+    /**
+     * Ids, distances and links of one lineage; item fields are not cached
+     */
+    private static class CachedLineage {
+        private final long generation;
+        private final Map<Long, Integer> distance;
+        private final List<Map<String, Object>> links;
+
+        CachedLineage(long generation, Map<Long, Integer> distance, List<Map<String, Object>> links) {
+            this.generation = generation;
+            this.distance = distance;
+            this.links = links;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.manublock.backend.repositories.ItemRepository;
 import com.manublock.backend.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -28,6 +29,9 @@ public class ItemService {
     @Autowired
     private AdminBlockchainService adminBlockchainService; // Use admin blockchain service instead
 
+    @Autowired
+    private ItemLineageService itemLineageService;
+
     /**
      * Create a new supply chain item in the database and on blockchain
      *
@@ -40,6 +44,7 @@ public class ItemService {
      * @param blockchainSupplyChainId The blockchain ID of the supply chain
      * @return The created item
      */
+    @Transactional
     public Items createItem(Long itemId, String name, String itemType, Long quantity,
                             Long ownerId, Long dbSupplyChainId, Long blockchainSupplyChainId) {
 
@@ -175,6 +180,7 @@ public class ItemService {
     /**
      * Transfer an item from one user to another
      */
+    @Transactional
     public Items transferItem(Long itemId, Long toUserId, Long quantity, String actionType) {
         Items item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("Item not found"));
@@ -229,6 +235,7 @@ public class ItemService {
 
                         itemRepository.save(newItem);
                         itemRepository.save(item);
+                        itemLineageService.linksAdded(newItemId, newItem.getParentItemIds());
                     }
                 })
                 .exceptionally(ex -> {
@@ -246,6 +253,7 @@ public class ItemService {
     /**
      * Process multiple input items to create a new item
      */
+    @Transactional
     public Items processItems(List<Long> sourceItemIds, Long newItemId, String newItemName,
                               List<Long> inputQuantities, Long outputQuantity, String newItemType, Long ownerId) {
 
@@ -300,6 +308,7 @@ public class ItemService {
 
         // Save to database first
         Items savedNewItem = itemRepository.save(newItem);
+        itemLineageService.linksAdded(newItemId, sourceItemIds);
 
         // Process on blockchain using admin wallet
         adminBlockchainService.processItem(sourceItemIds, newItemId, inputQuantities, outputQuantity, newItemType, ownerId)
@@ -335,6 +344,7 @@ public class ItemService {
     /**
      * Update an item's status
      */
+    @Transactional
     public Items updateItemStatus(Long itemId, String newStatus) {
         Items item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("Item not found"));
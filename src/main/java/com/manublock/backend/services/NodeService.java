@@ -29,6 +29,9 @@ public class NodeService {
     @Autowired
     private EdgeRepository edgeRepository;
 
+    @Autowired
+    private SupplyChainGraphCache graphCache;
+
     public Nodes addNode(Long supplyChainId, Nodes node) {
         Chains chain = chainRepository.findById(supplyChainId)
                 .orElseThrow(() -> new RuntimeException("Supply Chain not found"));
@@ -48,7 +51,10 @@ public class NodeService {
             node.setAssignedUser(null);
         }
 
-        return nodeRepository.save(node);
+        Nodes savedNode = nodeRepository.save(node);
+        chainRepository.incrementVersion(supplyChainId);
+        graphCache.nodeSaved(supplyChainId);
+        return savedNode;
     }
 
     public List<Nodes> getNodesBySupplyChainId(Long supplyChainId) {
@@ -104,7 +110,10 @@ public class NodeService {
             }
         }
 
-        return nodeRepository.save(existingNode);
+        Nodes savedNode = nodeRepository.save(existingNode);
+        chainRepository.incrementVersion(savedNode.getSupplyChain().getId());
+        graphCache.nodeSaved(savedNode.getSupplyChain().getId());
+        return savedNode;
     }
 
     /**
@@ -132,5 +141,7 @@ public class NodeService {
 
         // Now delete the node
         nodeRepository.delete(node);
+        chainRepository.incrementVersion(node.getSupplyChain().getId());
+        graphCache.nodeDeleted(node.getSupplyChain().getId(), nodeId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.repositories.ChainRepository;
+import com.manublock.backend.repositories.ItemRepository;
+import com.manublock.backend.repositories.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ETags for the polled read endpoints, built from the row_version columns of Chains, Items,
+ * Order and OrderItem with a single scalar or aggregate query, so an unchanged resource can be
+ * answered with 304 before any entity is loaded or mapped.
+ *
+ * The tags are weak: they follow the rows the response is built from, but not the names of
+ * related users or products that the DTOs also show.
+ */
+@Service
+public class ResourceETagService {
+
+    private final ChainRepository chainRepository;
+    private final ItemRepository itemRepository;
+    private final OrderRepository orderRepository;
+
+    @Autowired
+    public ResourceETagService(ChainRepository chainRepository, ItemRepository itemRepository,
+                               OrderRepository orderRepository) {
+        this.chainRepository = chainRepository;
+        this.itemRepository = itemRepository;
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * @return the supply chain's ETag, or null if it does not exist
+     */
+    public String chainETag(Long supplyChainId) {
+        return chainRepository.findVersionById(supplyChainId)
+                .map(version -> tag("chain", supplyChainId, version))
+                .orElse(null);
+    }
+
+    public String itemsBySupplyChainETag(Long supplyChainId) {
+        return tag("chain-items", supplyChainId, itemRepository.findVersionStampBySupplyChainId(supplyChainId));
+    }
+
+    public String itemsByOwnerETag(Long ownerId) {
+        return tag("owner-items", ownerId, itemRepository.findVersionStampByOwnerId(ownerId));
+    }
+
+    /**
+     * @return the order's ETag, or null if there is no order with that number
+     */
+    public String orderETag(String orderNumber) {
+        List<Object[]> stamp = orderRepository.findVersionStampByOrderNumber(orderNumber);
+        return stamp.isEmpty() ? null : tag("order", orderNumber, stamp);
+    }
+
+    public String ordersByCustomerETag(Long customerId) {
+        return tag("customer-orders", customerId, orderRepository.findVersionStampByCustomerId(customerId));
+    }
+
+    private static String tag(String kind, Object id, List<Object[]> stamp) {
+        Object[] values = stamp.isEmpty() ? new Object[0] : stamp.get(0);
+        return tag(kind, id, Stream.of(values).map(String::valueOf).collect(Collectors.joining(".")));
+    }
+
+    private static String tag(String kind, Object id, Object version) {
+        return "W/\"" + kind + "-" + id + "-" + version + "\"";
+    }
+}
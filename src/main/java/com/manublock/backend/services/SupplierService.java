@@ -36,6 +36,9 @@ public class SupplierService {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private ItemLineageService itemLineageService;
+
     /**
      * Create a new material in both database and blockchain
      */
@@ -191,6 +194,7 @@ public class SupplierService {
 
                 // Save to items table using repository
                 itemRepository.save(allocatedItem);
+                itemLineageService.linksAdded(blockchainItemId, allocatedItem.getParentItemIds());
             });
         }
 
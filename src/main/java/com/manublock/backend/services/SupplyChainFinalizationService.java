@@ -1,5 +1,6 @@
 package com.manublock.backend.services;
 
+import com.manublock.backend.dto.ParticipantAuthorizationDTO;
 import com.manublock.backend.models.Chains;
 import com.manublock.backend.models.Nodes;
 import com.manublock.backend.models.Users;
@@ -7,11 +8,30 @@ import com.manublock.backend.repositories.ChainRepository;
 import com.manublock.backend.repositories.EdgeRepository;
 import com.manublock.backend.repositories.NodeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
@@ -20,6 +40,7 @@ import java.util.stream.Collectors;
  */
 @Service
 public class SupplyChainFinalizationService {
+    private static final Logger LOGGER = Logger.getLogger(SupplyChainFinalizationService.class.getName());
 
     @Autowired
     private ChainRepository chainRepository;
@@ -33,12 +54,57 @@ public class SupplyChainFinalizationService {
     @Autowired
     private AdminBlockchainService adminBlockchainService;
 
+    @Autowired
+    private AuthorizationCacheService authorizationCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // How long finalize waits for the authorizations before reporting them as still pending
+    @Value("${blockchain.finalization.timeout-seconds:120}")
+    private long finalizationTimeoutSeconds;
+
     /**
      * Finalizes a supply chain, preventing further structure modifications
-     * and authorizing all assigned users on the blockchain using admin wallet
+     * and authorizing all assigned users on the blockchain using admin wallet.
+     *
+     * Each authorization transaction is queued in its own transaction, so one user's failure
+     * is reported without undoing the status change; the authorizations are then sent
+     * concurrently by the outbox (nonces are pipelined) and awaited up to the finalization timeout.
      */
-    @Transactional
-    public Chains finalizeSupplyChain(Long supplyChainId) {
+    public FinalizationResult finalizeSupplyChain(Long supplyChainId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        FinalizationResult result = transactionTemplate.execute(status -> finalizeAndQueueAuthorizations(supplyChainId));
+
+        // Awaited after the status change commits, outside of any transaction
+        CompletableFuture<Void> all = CompletableFuture.allOf(result.pending.values().toArray(new CompletableFuture[0]));
+        try {
+            all.get(finalizationTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Per-user outcomes are read from each future below
+        }
+
+        for (ParticipantAuthorizationDTO participant : result.participants) {
+            CompletableFuture<String> future = result.pending.get(participant.getUserId());
+            if (future == null) {
+                continue;
+            }
+            if (!future.isDone()) {
+                participant.setStatus(ParticipantAuthorizationDTO.PENDING);
+            } else if (future.isCompletedExceptionally()) {
+                participant.setStatus(ParticipantAuthorizationDTO.FAILED);
+                participant.setError(failureMessage(future));
+            } else {
+                participant.setStatus(ParticipantAuthorizationDTO.AUTHORIZED);
+                participant.setTransactionHash(future.join());
+            }
+        }
+        return result;
+    }
+
+    private FinalizationResult finalizeAndQueueAuthorizations(Long supplyChainId) {
         Chains chain = chainRepository.findById(supplyChainId)
                 .orElseThrow(() -> new RuntimeException("Supply chain not found"));
 
@@ -49,71 +115,103 @@ public class SupplyChainFinalizationService {
         }
 
         // 2. Check for orphaned nodes (no connections)
-        List<Long> orphanedNodeIds = findOrphanedNodes(supplyChainId);
-        if (!orphanedNodeIds.isEmpty()) {
-            Nodes firstOrphan = nodeRepository.findById(orphanedNodeIds.get(0)).orElse(null);
-            String nodeName = firstOrphan != null ? firstOrphan.getName() : "Unknown";
-            throw new RuntimeException("Cannot finalize supply chain with disconnected nodes. Node '" +
-                    nodeName + "' has no connections.");
-        }
+        Set<Long> connectedNodeIds = findConnectedNodeIds(supplyChainId);
 
-        // 3. Ensure all role-assigned nodes have a user assigned
-        List<Nodes> unassignedRoleNodes = nodes.stream()
-                .filter(node -> !node.getRole().equals("Unassigned") && node.getAssignedUser() == null)
-                .collect(Collectors.toList());
-
-        if (!unassignedRoleNodes.isEmpty()) {
-            Nodes firstUnassigned = unassignedRoleNodes.get(0);
-            throw new RuntimeException("Node '" + firstUnassigned.getName() +
-                    "' has role '" + firstUnassigned.getRole() +
-                    "' but no assigned user. Please assign users to all role-specific nodes.");
+        // 3. Ensure all role-assigned nodes have a user assigned, collecting the distinct users
+        Map<Long, Users> assignedUsers = new LinkedHashMap<>();
+        for (Nodes node : nodes) {
+            if (!connectedNodeIds.contains(node.getId())) {
+                throw new RuntimeException("Cannot finalize supply chain with disconnected nodes. Node '" +
+                        node.getName() + "' has no connections.");
+            }
+            if (node.getAssignedUser() != null) {
+                assignedUsers.putIfAbsent(node.getAssignedUser().getId(), node.getAssignedUser());
+            } else if (node.getRole() != null && !node.getRole().equals("Unassigned")) {
+                throw new RuntimeException("Node '" + node.getName() +
+                        "' has role '" + node.getRole() +
+                        "' but no assigned user. Please assign users to all role-specific nodes.");
+            }
         }
 
-        chain.setUpdatedAt(new Date());
-        chain.setBlockchainStatus("FINALIZED");
-
-        // 5. Register all users on the blockchain using admin wallet and the blockchain ID
+        // 4. Register all users on the blockchain using admin wallet and the blockchain ID
         Long blockchainId = chain.getBlockchainId();
         if (blockchainId == null) {
             throw new RuntimeException("Supply chain does not have a valid blockchain ID. Cannot finalize.");
         }
+        // The ID is assigned when the chain is created, before its registration is confirmed
+        if ("PENDING".equals(chain.getBlockchainStatus()) || "FAILED".equals(chain.getBlockchainStatus())) {
+            throw new RuntimeException("Supply chain is not registered on the blockchain yet. Cannot finalize.");
+        }
 
-        nodes.stream()
-                .filter(node -> node.getAssignedUser() != null)
-                .map(node -> node.getAssignedUser())
-                .distinct() // Remove duplicates
-                .forEach(user -> {
-                    try {
-                        // Authorize user in blockchain using admin wallet and the blockchain ID
-                        adminBlockchainService.authorizeParticipant(blockchainId, user.getId());
-                    } catch (Exception e) {
-                        // Log error but continue with other users
-                        System.err.println("Failed to authorize user " + user.getUsername() +
-                                " on blockchain: " + e.getMessage());
-                    }
-                });
+        chain.setUpdatedAt(new Date());
+        chain.setBlockchainStatus("FINALIZED");
 
         // Save ONLY the chain with updated status, not modifying nodes or edges
-        return chainRepository.save(chain);
+        Chains savedChain = chainRepository.save(chain);
+
+        // Authorizations cannot be revoked, so users that are already authorized are skipped
+        Map<Long, Boolean> authorized = Collections.emptyMap();
+        try {
+            authorized = authorizationCache.getAuthorizations(blockchainId, assignedUsers.keySet());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read existing authorizations of supply chain " + blockchainId +
+                    ", authorizing every assigned user", e);
+        }
+
+        TransactionTemplate perUserTransaction = new TransactionTemplate(transactionManager);
+        perUserTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        List<ParticipantAuthorizationDTO> participants = new ArrayList<>();
+        Map<Long, CompletableFuture<String>> pending = new HashMap<>();
+        for (Users user : assignedUsers.values()) {
+            ParticipantAuthorizationDTO participant =
+                    new ParticipantAuthorizationDTO(user.getId(), user.getUsername(), ParticipantAuthorizationDTO.PENDING);
+            participants.add(participant);
+
+            if (Boolean.TRUE.equals(authorized.get(user.getId()))) {
+                participant.setStatus(ParticipantAuthorizationDTO.ALREADY_AUTHORIZED);
+                continue;
+            }
+            Long userId = user.getId();
+            try {
+                // Queued in its own transaction, so a failed enqueue cannot leave the finalization rollback-only
+                CompletableFuture<String> future = perUserTransaction.execute(
+                        status -> adminBlockchainService.authorizeParticipant(blockchainId, userId));
+                // Cached lookups said false for this user until now
+                future.thenAccept(txHash -> authorizationCache.markAuthorized(blockchainId, userId));
+                pending.put(userId, future);
+            } catch (Exception e) {
+                // Report the error but continue with other users
+                participant.setStatus(ParticipantAuthorizationDTO.FAILED);
+                participant.setError(e.getMessage());
+            }
+        }
+
+        return new FinalizationResult(savedChain, participants, pending);
     }
 
     /**
-     * Finds nodes with no connections (isolated nodes)
+     * Ids of the nodes that are part of an edge (either source or target)
      */
-    private List<Long> findOrphanedNodes(Long supplyChainId) {
-        List<Nodes> allNodes = nodeRepository.findBySupplyChain_Id(supplyChainId);
-        List<Long> allNodeIds = allNodes.stream().map(Nodes::getId).collect(Collectors.toList());
-
-        // Get all nodes that are part of an edge (either source or target)
-        List<Long> connectedNodeIds = edgeRepository.findBySupplyChain_Id(supplyChainId).stream()
-                .flatMap(edge -> List.of(edge.getSource().getId(), edge.getTarget().getId()).stream())
-                .distinct()
-                .collect(Collectors.toList());
+    private Set<Long> findConnectedNodeIds(Long supplyChainId) {
+        Set<Long> connectedNodeIds = new HashSet<>();
+        for (Object[] edge : edgeRepository.findEndpointsBySupplyChainId(supplyChainId)) {
+            connectedNodeIds.add((Long) edge[1]);
+            connectedNodeIds.add((Long) edge[2]);
+        }
+        return connectedNodeIds;
+    }
 
-        // Find nodes that are not in the connected list
-        return allNodeIds.stream()
-                .filter(id -> !connectedNodeIds.contains(id))
-                .collect(Collectors.toList());
+    private static String failureMessage(CompletableFuture<String> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getMessage();
+        } catch (CancellationException e) {
+            return "Cancelled";
+        }
     }
 
     /**
@@ -137,4 +235,28 @@ public class SupplyChainFinalizationService {
                 .distinct()
                 .collect(Collectors.toList());
     }
+
+    /**
+     * The finalized chain and what happened to the authorization of each assigned user
+     */
+    public static class FinalizationResult {
+        private final Chains chain;
+        private final List<ParticipantAuthorizationDTO> participants;
+        private final Map<Long, CompletableFuture<String>> pending;
+
+        FinalizationResult(Chains chain, List<ParticipantAuthorizationDTO> participants,
+                           Map<Long, CompletableFuture<String>> pending) {
+            this.chain = chain;
+            this.participants = participants;
+            this.pending = pending;
+        }
+
+        public Chains getChain() {
+            return chain;
+        }
+
+        public List<ParticipantAuthorizationDTO> getParticipants() {
+            return participants;
+        }
+    }
 }
\ No newline at end of file
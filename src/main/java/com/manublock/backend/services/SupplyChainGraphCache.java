@@ -0,0 +1,393 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.repositories.ChainRepository;
+import com.manublock.backend.repositories.EdgeRepository;
+import com.manublock.backend.repositories.NodeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory node/edge graph of each supply chain, kept current by the edge and node writes, so
+ * cycle checks in the editor read one version number instead of the whole graph.
+ *
+ * Every node or edge write bumps the chain's row_version. A cached graph remembers the version
+ * it reflects and is reloaded when the database has moved past it, which covers writes made by
+ * other instances. A local write is applied in place only when its own bump is the single step
+ * past the cached version; otherwise the graph is dropped. The number of cached chains is bounded.
+ *
+ * Each graph keeps a topological order that is repaired incrementally on edge inserts
+ * (Pearce-Kelly): an edge that already goes forward in the order needs no work, otherwise only
+ * the nodes ordered between its endpoints are searched and reordered. All searches are iterative.
+ */
+@Service
+public class SupplyChainGraphCache {
+
+    private final NodeRepository nodeRepository;
+    private final EdgeRepository edgeRepository;
+    private final ChainRepository chainRepository;
+    private final Map<Long, ChainGraph> graphs;
+
+    @Autowired
+    public SupplyChainGraphCache(
+            NodeRepository nodeRepository,
+            EdgeRepository edgeRepository,
+            ChainRepository chainRepository,
+            @Value("${supplychain.graph-cache.max-chains:1000}") int maxChains) {
+        this.nodeRepository = nodeRepository;
+        this.edgeRepository = edgeRepository;
+        this.chainRepository = chainRepository;
+        this.graphs = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ChainGraph> eldest) {
+                return size() > maxChains;
+            }
+        });
+    }
+
+    /**
+     * Whether adding source -> target to the chain would close a cycle
+     */
+    public boolean wouldCreateCycle(Long supplyChainId, Long sourceId, Long targetId) {
+        return graph(supplyChainId).wouldCreateCycle(sourceId, targetId);
+    }
+
+    /**
+     * Number of changes applied to the cached graph of a chain since it was loaded
+     */
+    public long getVersion(Long supplyChainId) {
+        return graph(supplyChainId).getVersion();
+    }
+
+    /*
+     * The write hooks below must be called after the write has bumped the chain's row_version,
+     * in the same transaction when there is one
+     */
+
+    public void edgeAdded(Long supplyChainId, Long edgeId, Long sourceId, Long targetId) {
+        afterCommit(supplyChainId, graph -> graph.addEdge(edgeId, sourceId, targetId));
+    }
+
+    public void edgeDeleted(Long supplyChainId, Long edgeId) {
+        afterCommit(supplyChainId, graph -> graph.removeEdge(edgeId));
+    }
+
+    public void nodeDeleted(Long supplyChainId, Long nodeId) {
+        afterCommit(supplyChainId, graph -> graph.removeNode(nodeId));
+    }
+
+    /**
+     * A node was added or changed; the graph itself only learns of nodes through their edges
+     */
+    public void nodeSaved(Long supplyChainId) {
+        afterCommit(supplyChainId, graph -> { });
+    }
+
+    public void evict(Long supplyChainId) {
+        graphs.remove(supplyChainId);
+    }
+
+    /**
+     * The cached graph if it matches the chain's current row_version, otherwise a fresh load.
+     * Loads run outside the map lock; two threads loading the same chain is harmless.
+     */
+    private ChainGraph graph(Long supplyChainId) {
+        long dbVersion = chainRepository.findVersionById(supplyChainId).orElse(0L);
+        ChainGraph graph = graphs.get(supplyChainId);
+        if (graph != null && graph.getDbVersion() == dbVersion) {
+            return graph;
+        }
+        graph = load(supplyChainId, dbVersion);
+        graphs.put(supplyChainId, graph);
+        return graph;
+    }
+
+    /**
+     * Reads the nodes and edges of a chain. The version is read first, so a write landing
+     * during the load leaves the graph marked older than its contents and it is simply reloaded.
+     */
+    private ChainGraph load(Long supplyChainId, long dbVersion) {
+        ChainGraph graph = new ChainGraph(dbVersion);
+        for (Long nodeId : nodeRepository.findIdsBySupplyChainId(supplyChainId)) {
+            graph.addNode(nodeId);
+        }
+        for (Object[] edge : edgeRepository.findEndpointsBySupplyChainId(supplyChainId)) {
+            graph.addEdgeUnordered((Long) edge[0], (Long) edge[1], (Long) edge[2]);
+        }
+        graph.recomputeOrder();
+        return graph;
+    }
+
+    /**
+     * Applies a change to a chain's graph once the current transaction commits. Graphs that are
+     * not loaded are left alone; they read the committed state when first needed. The version is
+     * read now: inside the writer's transaction the chain row is locked by its own bump, so the
+     * value is exactly the one this write commits.
+     */
+    private void afterCommit(Long supplyChainId, Consumer<ChainGraph> change) {
+        long writtenVersion = chainRepository.findVersionById(supplyChainId).orElse(0L);
+        Runnable apply = () -> {
+            ChainGraph graph = graphs.get(supplyChainId);
+            if (graph != null && !graph.apply(writtenVersion, change)) {
+                // Some other write came in between; reload on the next check
+                graphs.remove(supplyChainId, graph);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * Adjacency of one chain with a topological order over its nodes. Edges are tracked by id so
+     * replaying a change that the initial load already saw is harmless.
+     */
+    static class ChainGraph {
+        private final Map<Long, Map<Long, Integer>> successors = new HashMap<>();
+        private final Map<Long, Map<Long, Integer>> predecessors = new HashMap<>();
+        private final Map<Long, Long[]> edges = new HashMap<>();
+        private final Map<Long, Integer> order = new HashMap<>();
+        private int nextOrder;
+        private long version;
+        // The chain row_version this graph reflects
+        private long dbVersion;
+        // False while the stored edges already contain a cycle; the order is then meaningless
+        private boolean acyclic = true;
+
+        ChainGraph(long dbVersion) {
+            this.dbVersion = dbVersion;
+        }
+
+        synchronized long getVersion() {
+            return version;
+        }
+
+        synchronized long getDbVersion() {
+            return dbVersion;
+        }
+
+        /**
+         * Applies a local write if it is the only one since this graph's version
+         * @return false if the graph missed another write and must be reloaded
+         */
+        synchronized boolean apply(long writtenVersion, Consumer<ChainGraph> change) {
+            if (writtenVersion != dbVersion + 1) {
+                return writtenVersion <= dbVersion;
+            }
+            change.accept(this);
+            dbVersion = writtenVersion;
+            return true;
+        }
+
+        synchronized boolean wouldCreateCycle(Long sourceId, Long targetId) {
+            if (sourceId.equals(targetId) || !acyclic) {
+                return true;
+            }
+            Integer sourceOrder = order.get(sourceId);
+            Integer targetOrder = order.get(targetId);
+            if (sourceOrder == null || targetOrder == null || sourceOrder < targetOrder) {
+                // A node without edges, or an edge that already follows the order
+                return false;
+            }
+            return forwardRegion(targetId, sourceOrder).contains(sourceId);
+        }
+
+        synchronized void addEdge(Long edgeId, Long sourceId, Long targetId) {
+            if (edges.containsKey(edgeId)) {
+                return;
+            }
+            addEdgeUnordered(edgeId, sourceId, targetId);
+            version++;
+            if (!acyclic) {
+                return;
+            }
+            if (sourceId.equals(targetId)) {
+                acyclic = false;
+                return;
+            }
+
+            int sourceOrder = order.get(sourceId);
+            int targetOrder = order.get(targetId);
+            if (sourceOrder < targetOrder) {
+                return;
+            }
+
+            // Nodes reachable from the target that are not yet after the source must move behind
+            // the nodes that reach the source; if the source is among them the edge closes a cycle
+            Set<Long> forward = forwardRegion(targetId, sourceOrder);
+            if (forward.contains(sourceId)) {
+                acyclic = false;
+                return;
+            }
+            Set<Long> backward = backwardRegion(sourceId, targetOrder);
+            reorder(new ArrayList<>(backward), new ArrayList<>(forward));
+        }
+
+        synchronized void removeEdge(Long edgeId) {
+            Long[] edge = edges.remove(edgeId);
+            if (edge == null) {
+                return;
+            }
+            decrement(successors, edge[0], edge[1]);
+            decrement(predecessors, edge[1], edge[0]);
+            version++;
+            // Removing an edge keeps a valid order valid; a broken one may have become repairable
+            if (!acyclic) {
+                recomputeOrder();
+            }
+        }
+
+        synchronized void removeNode(Long nodeId) {
+            List<Long> incident = new ArrayList<>();
+            for (Map.Entry<Long, Long[]> edge : edges.entrySet()) {
+                if (edge.getValue()[0].equals(nodeId) || edge.getValue()[1].equals(nodeId)) {
+                    incident.add(edge.getKey());
+                }
+            }
+            for (Long edgeId : incident) {
+                Long[] edge = edges.remove(edgeId);
+                decrement(successors, edge[0], edge[1]);
+                decrement(predecessors, edge[1], edge[0]);
+            }
+            successors.remove(nodeId);
+            predecessors.remove(nodeId);
+            order.remove(nodeId);
+            version++;
+            if (!acyclic) {
+                recomputeOrder();
+            }
+        }
+
+        void addNode(Long nodeId) {
+            if (!order.containsKey(nodeId)) {
+                order.put(nodeId, nextOrder++);
+            }
+        }
+
+        void addEdgeUnordered(Long edgeId, Long sourceId, Long targetId) {
+            addNode(sourceId);
+            addNode(targetId);
+            edges.put(edgeId, new Long[]{sourceId, targetId});
+            successors.computeIfAbsent(sourceId, id -> new HashMap<>()).merge(targetId, 1, Integer::sum);
+            predecessors.computeIfAbsent(targetId, id -> new HashMap<>()).merge(sourceId, 1, Integer::sum);
+        }
+
+        /**
+         * Full topological sort (Kahn); marks the graph cyclic if some nodes cannot be ordered
+         */
+        void recomputeOrder() {
+            Map<Long, Integer> inDegree = new HashMap<>();
+            for (Long nodeId : order.keySet()) {
+                inDegree.put(nodeId, predecessors.getOrDefault(nodeId, Collections.emptyMap()).size());
+            }
+            Deque<Long> ready = new ArrayDeque<>();
+            for (Map.Entry<Long, Integer> entry : inDegree.entrySet()) {
+                if (entry.getValue() == 0) {
+                    ready.add(entry.getKey());
+                }
+            }
+
+            Map<Long, Integer> sorted = new HashMap<>();
+            int next = 0;
+            while (!ready.isEmpty()) {
+                Long nodeId = ready.poll();
+                sorted.put(nodeId, next++);
+                for (Long successor : successors.getOrDefault(nodeId, Collections.emptyMap()).keySet()) {
+                    if (inDegree.merge(successor, -1, Integer::sum) == 0) {
+                        ready.add(successor);
+                    }
+                }
+            }
+
+            acyclic = sorted.size() == order.size();
+            if (acyclic) {
+                order.clear();
+                order.putAll(sorted);
+                nextOrder = next;
+            }
+        }
+
+        private Set<Long> forwardRegion(Long start, int upperOrder) {
+            return region(start, successors, nodeOrder -> nodeOrder <= upperOrder);
+        }
+
+        private Set<Long> backwardRegion(Long start, int lowerOrder) {
+            return region(start, predecessors, nodeOrder -> nodeOrder >= lowerOrder);
+        }
+
+        private Set<Long> region(Long start, Map<Long, Map<Long, Integer>> adjacency,
+                                 IntPredicate inBounds) {
+            Set<Long> visited = new HashSet<>();
+            Deque<Long> stack = new ArrayDeque<>();
+            visited.add(start);
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                Long nodeId = stack.pop();
+                for (Long next : adjacency.getOrDefault(nodeId, Collections.emptyMap()).keySet()) {
+                    if (inBounds.test(order.get(next)) && visited.add(next)) {
+                        stack.push(next);
+                    }
+                }
+            }
+            return visited;
+        }
+
+        /**
+         * Gives the backward region the lowest of the affected order slots and the forward region
+         * the rest, keeping the relative order inside each region
+         */
+        private void reorder(List<Long> backward, List<Long> forward) {
+            backward.sort((a, b) -> Integer.compare(order.get(a), order.get(b)));
+            forward.sort((a, b) -> Integer.compare(order.get(a), order.get(b)));
+
+            List<Integer> slots = new ArrayList<>(backward.size() + forward.size());
+            for (Long nodeId : backward) {
+                slots.add(order.get(nodeId));
+            }
+            for (Long nodeId : forward) {
+                slots.add(order.get(nodeId));
+            }
+            Collections.sort(slots);
+
+            int slot = 0;
+            for (Long nodeId : backward) {
+                order.put(nodeId, slots.get(slot++));
+            }
+            for (Long nodeId : forward) {
+                order.put(nodeId, slots.get(slot++));
+            }
+        }
+
+        private static void decrement(Map<Long, Map<Long, Integer>> adjacency, Long from, Long to) {
+            Map<Long, Integer> neighbours = adjacency.get(from);
+            if (neighbours == null) {
+                return;
+            }
+            if (neighbours.merge(to, -1, Integer::sum) <= 0) {
+                neighbours.remove(to);
+            }
+        }
+    }
+}
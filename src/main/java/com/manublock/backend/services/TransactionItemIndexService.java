@@ -0,0 +1,211 @@
+package com.manublock.backend.services;
+
+import com.manublock.backend.models.BlockchainTransaction;
+import com.manublock.backend.models.TransactionItem;
+import com.manublock.backend.repositories.BlockchainTransactionRepository;
+import com.manublock.backend.repositories.TransactionItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the transaction_items links between blockchain transactions and the items they
+ * touch. New transactions are linked when they are queued; rows written before the typed
+ * arguments existed get their arguments parsed from the parameters string once, at startup.
+ */
+@Service
+public class TransactionItemIndexService {
+    private static final Logger LOGGER = Logger.getLogger(TransactionItemIndexService.class.getName());
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    // [source ids],newItemId,[input quantities],outputQuantity,newItemType,processorId
+    private static final Pattern PROCESS_ITEM_PARAMETERS =
+            Pattern.compile("^\\[(.*?)\\],(\\d+),\\[(.*?)\\],(\\d+),(.*),(\\d+)$");
+
+    private final BlockchainTransactionRepository transactionRepository;
+    private final TransactionItemRepository transactionItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public TransactionItemIndexService(
+            BlockchainTransactionRepository transactionRepository,
+            TransactionItemRepository transactionItemRepository,
+            PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.transactionItemRepository = transactionItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Links a saved transaction to its item (the output item for processItem) and to any source items
+     */
+    public void linkItems(BlockchainTransaction tx, Collection<Long> sourceItemIds) {
+        transactionItemRepository.saveAll(buildLinks(tx, sourceItemIds));
+    }
+
+    /**
+     * Source item ids of each transaction, for describing processItem calls
+     */
+    public Map<Long, List<Long>> findSourceItemIds(Collection<Long> transactionIds) {
+        Map<Long, List<Long>> sources = new HashMap<>();
+        if (transactionIds.isEmpty()) {
+            return sources;
+        }
+        for (TransactionItem link : transactionItemRepository.findByTransactionIdIn(transactionIds)) {
+            if (TransactionItem.SOURCE.equals(link.getRole())) {
+                sources.computeIfAbsent(link.getTransactionId(), id -> new ArrayList<>()).add(link.getItemId());
+            }
+        }
+        return sources;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLegacyIndexing() {
+        Thread indexer = new Thread(this::indexLegacyTransactions, "transaction-item-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    private void indexLegacyTransactions() {
+        int indexed = 0;
+        try {
+            Integer unlinked = transactionTemplate.execute(status -> unlinkOrderTransactions());
+            if (unlinked != null && unlinked > 0) {
+                LOGGER.info("Moved the order id of " + unlinked + " createOrder transactions out of their item links");
+            }
+
+            int page;
+            do {
+                Integer pageSize = transactionTemplate.execute(status -> indexLegacyPage());
+                page = pageSize != null ? pageSize : 0;
+                indexed += page;
+            } while (page == BACKFILL_PAGE_SIZE);
+
+            if (indexed > 0) {
+                LOGGER.info("Indexed arguments and item links of " + indexed + " existing blockchain transactions");
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to index existing blockchain transactions after " + indexed + " rows", e);
+        }
+    }
+
+    /**
+     * createOrder rows used to be linked as SUBJECT of the item whose id equals the order id;
+     * moves that id to orderId and drops the links
+     */
+    private int unlinkOrderTransactions() {
+        transactionItemRepository.deleteByTransactionFunction("createOrder");
+        return transactionRepository.moveItemIdToOrderId("createOrder");
+    }
+
+    private int indexLegacyPage() {
+        List<BlockchainTransaction> page = transactionRepository.findTop500ByArgumentsIndexedIsNullOrderByIdAsc();
+        List<TransactionItem> links = new ArrayList<>();
+        for (BlockchainTransaction tx : page) {
+            List<Long> sourceItemIds = new ArrayList<>();
+            try {
+                parseLegacyParameters(tx, sourceItemIds);
+            } catch (RuntimeException e) {
+                // Unparseable rows are marked anyway so they are not retried on every start
+                LOGGER.fine("Could not parse parameters of blockchain transaction " + tx.getId() + ": " + e.getMessage());
+            }
+            tx.setArgumentsIndexed(true);
+            links.addAll(buildLinks(tx, sourceItemIds));
+        }
+        transactionRepository.saveAll(page);
+        transactionItemRepository.saveAll(links);
+        return page.size();
+    }
+
+    private static List<TransactionItem> buildLinks(BlockchainTransaction tx, Collection<Long> sourceItemIds) {
+        List<TransactionItem> links = new ArrayList<>();
+        if (tx.getItemId() != null) {
+            String role = "processItem".equals(tx.getFunction()) ? TransactionItem.OUTPUT : TransactionItem.SUBJECT;
+            links.add(new TransactionItem(tx.getId(), tx.getItemId(), role));
+        }
+        for (Long sourceItemId : sourceItemIds) {
+            links.add(new TransactionItem(tx.getId(), sourceItemId, TransactionItem.SOURCE));
+        }
+        return links;
+    }
+
+    /**
+     * Fills the typed arguments from the comma-joined parameters string written by the old write paths
+     */
+    private static void parseLegacyParameters(BlockchainTransaction tx, List<Long> sourceItemIds) {
+        String params = tx.getParameters();
+        if (params == null || tx.getFunction() == null) {
+            return;
+        }
+
+        if ("processItem".equals(tx.getFunction())) {
+            Matcher matcher = PROCESS_ITEM_PARAMETERS.matcher(params);
+            if (matcher.matches()) {
+                for (String id : matcher.group(1).split(",")) {
+                    if (!id.trim().isEmpty()) {
+                        sourceItemIds.add(Long.parseLong(id.trim()));
+                    }
+                }
+                tx.setItemId(Long.parseLong(matcher.group(2)));
+                tx.setQuantity(Long.parseLong(matcher.group(4)));
+                tx.setActionType(matcher.group(5));
+                tx.setUserId(Long.parseLong(matcher.group(6)));
+            }
+            return;
+        }
+
+        String[] parts = params.split(",");
+        switch (tx.getFunction()) {
+            case "createSupplyChain":
+                tx.setSupplyChainId(Long.parseLong(parts[0]));
+                if (parts.length >= 2) {
+                    tx.setUserId(Long.parseLong(parts[1]));
+                }
+                break;
+            case "authorizeParticipant":
+                tx.setSupplyChainId(Long.parseLong(parts[0]));
+                tx.setUserId(Long.parseLong(parts[1]));
+                break;
+            case "createItem":
+                tx.setItemId(Long.parseLong(parts[0]));
+                tx.setSupplyChainId(Long.parseLong(parts[1]));
+                tx.setQuantity(Long.parseLong(parts[2]));
+                tx.setActionType(parts[3]);
+                tx.setUserId(Long.parseLong(parts[4]));
+                break;
+            case "createOrder":
+                tx.setOrderId(Long.parseLong(parts[0]));
+                tx.setSupplyChainId(Long.parseLong(parts[1]));
+                tx.setActionType("ORDER");
+                tx.setUserId(Long.parseLong(parts[2]));
+                break;
+            case "transferItem":
+                tx.setItemId(Long.parseLong(parts[0]));
+                tx.setUserId(Long.parseLong(parts[1]));
+                tx.setQuantity(Long.parseLong(parts[2]));
+                tx.setActionType(parts[3]);
+                tx.setFromUserId(Long.parseLong(parts[4]));
+                break;
+            case "updateItemStatus":
+                tx.setItemId(Long.parseLong(parts[0]));
+                tx.setStatusCode(Integer.parseInt(parts[1]));
+                tx.setUserId(Long.parseLong(parts[2]));
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.manublock.backend.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.FastRawTransactionManager;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pipelined submission of contract transactions signed with the admin wallet.
+ * Nonces come from the local counter of the shared FastRawTransactionManager, so many
+ * transactions can be signed and broadcast at once; receipts come from the shared
+ * TransactionReceiptWatcher instead of each caller waiting out its own receipt poll.
+ *
+ * Re-reading the nonce from the node while later nonces are still on their way would hand
+ * them out twice, so sends hold a shared lock until the node answers and a resync takes it
+ * exclusively, once no send is in flight.
+ */
+@Service
+public class TransactionPipelineService {
+    private static final Logger LOGGER = Logger.getLogger(TransactionPipelineService.class.getName());
+    private static final int MAX_NONCE_RESYNC_ATTEMPTS = 3;
+
+    private final FastRawTransactionManager transactionManager;
+    private final DynamicGasProviderService gasOracle;
+    private final GasLimitProfilerService gasLimitProfiler;
+    private final String contractAddress;
+    private final ExecutorService submitExecutor;
+    private final TransactionReceiptWatcher receiptWatcher;
+    private final ReentrantReadWriteLock nonceLock = new ReentrantReadWriteLock();
+    // Set when a rejected send left its nonce unused; the next send resyncs first
+    private final AtomicBoolean resyncNeeded = new AtomicBoolean(false);
+
+    @Autowired
+    public TransactionPipelineService(
+            FastRawTransactionManager web3jTransactionManager,
+            DynamicGasProviderService gasProviderService,
+            GasLimitProfilerService gasLimitProfiler,
+            TransactionReceiptWatcher receiptWatcher,
+            @Value("${blockchain.contract.address}") String contractAddress,
+            @Value("${blockchain.pipeline.submit-threads:4}") int submitThreads) {
+
+        this.transactionManager = web3jTransactionManager;
+        this.gasOracle = gasProviderService;
+        this.gasLimitProfiler = gasLimitProfiler;
+        this.contractAddress = contractAddress;
+        this.submitExecutor = Executors.newFixedThreadPool(submitThreads);
+        this.receiptWatcher = receiptWatcher;
+    }
+
+    /**
+     * Signs and broadcasts a call to the supply chain contract without waiting for
+     * earlier submissions to be mined
+     * @param functionName contract function name, used for gas price lookup and logging
+     * @param encodedFunction ABI encoded call data
+     * @return handle exposing the broadcast hash and the eventual receipt
+     */
+    public Submission submit(String functionName, String encodedFunction) {
+        CompletableFuture<Broadcast> broadcast = CompletableFuture.supplyAsync(
+                () -> broadcast(functionName, encodedFunction), submitExecutor);
+        return new Submission(
+                broadcast.thenApply(sent -> sent.transactionHash),
+                broadcast.thenCompose(sent -> awaitReceipt(sent, encodedFunction)));
+    }
+
+    private Broadcast broadcast(String functionName, String encodedFunction) {
+        // Sized from the gas used by earlier calls of the same shape, or eth_estimateGas
+        BigInteger gasLimit = gasLimitProfiler.getGasLimit(encodedFunction);
+
+        for (int attempt = 0; ; attempt++) {
+            if (resyncNeeded.compareAndSet(true, false)) {
+                resyncNonce();
+            }
+
+            EthSendTransaction response;
+            nonceLock.readLock().lock();
+            try {
+                response = send(gasLimit, encodedFunction);
+            } catch (IOException e) {
+                // The nonce was taken from the local counter but may never have reached the node
+                resyncNeeded.set(true);
+                throw new CompletionException(e);
+            } finally {
+                nonceLock.readLock().unlock();
+            }
+
+            if (!response.hasError()) {
+                LOGGER.info("Broadcast " + functionName + " with hash " + response.getTransactionHash() +
+                        " and gas limit " + gasLimit);
+                return new Broadcast(response.getTransactionHash(), gasLimit);
+            }
+
+            String message = response.getError().getMessage();
+            if (isNonceError(message)) {
+                resyncNonce();
+                if (attempt < MAX_NONCE_RESYNC_ATTEMPTS) {
+                    LOGGER.warning("Nonce rejected for " + functionName + " (" + message + "), resubmitting");
+                    continue;
+                }
+            } else {
+                // Rejected before reaching the pool, so its nonce is unused and later sends queue
+                // behind the gap; close it before the next send
+                resyncNeeded.set(true);
+            }
+
+            throw new CompletionException(new TransactionException(
+                    "Error processing transaction request: " + message));
+        }
+    }
+
+    private EthSendTransaction send(BigInteger gasLimit, String encodedFunction) throws IOException {
+        // Fees come from one cached quote, so they agree with each other and add no RPC round trip
+        DynamicGasProviderService.GasQuote quote = gasOracle.getGasQuote();
+        if (quote.isEip1559()) {
+            return transactionManager.sendEIP1559Transaction(
+                    gasOracle.getChainId(),
+                    quote.getMaxPriorityFeePerGas(),
+                    quote.getMaxFeePerGas(),
+                    gasLimit, contractAddress, encodedFunction, BigInteger.ZERO, false);
+        }
+        return transactionManager.sendTransaction(
+                quote.getGasPrice(), gasLimit, contractAddress, encodedFunction, BigInteger.ZERO);
+    }
+
+    private CompletableFuture<TransactionReceipt> awaitReceipt(Broadcast sent, String encodedFunction) {
+        return receiptWatcher.watch(sent.transactionHash).thenApply(receipt -> {
+            if (receipt.isStatusOK()) {
+                gasLimitProfiler.recordGasUsed(encodedFunction, receipt.getGasUsed());
+                return receipt;
+            }
+
+            // A failure that burned (nearly) the whole limit ran out of gas rather than reverting;
+            // raise the profile so a retry goes out with more gas
+            if (receipt.getGasUsed() != null &&
+                    receipt.getGasUsed().multiply(BigInteger.valueOf(100))
+                            .compareTo(sent.gasLimit.multiply(BigInteger.valueOf(98))) >= 0) {
+                gasLimitProfiler.recordOutOfGas(encodedFunction, sent.gasLimit);
+                throw new CompletionException(new TransactionException(
+                        "Transaction " + receipt.getTransactionHash() + " ran out of gas at limit " +
+                                sent.gasLimit, receipt));
+            }
+
+            throw new CompletionException(new TransactionException(
+                    "Transaction " + receipt.getTransactionHash() + " reverted with status: " +
+                            receipt.getStatus(), receipt));
+        });
+    }
+
+    /**
+     * Re-reads the next nonce from eth_getTransactionCount(pending) once every send in flight
+     * has been answered, holding back new sends meanwhile
+     */
+    private void resyncNonce() {
+        nonceLock.writeLock().lock();
+        try {
+            transactionManager.resetNonce();
+            LOGGER.info("Resynced local nonce to " + transactionManager.getCurrentNonce());
+        } catch (IOException e) {
+            resyncNeeded.set(true);
+            LOGGER.log(Level.WARNING, "Failed to resync nonce from node", e);
+        } finally {
+            nonceLock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isNonceError(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("nonce too low") ||
+                lower.contains("nonce too high") ||
+                lower.contains("invalid nonce") ||
+                lower.contains("replacement transaction underpriced");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        submitExecutor.shutdown();
+    }
+
+    private static class Broadcast {
+        private final String transactionHash;
+        private final BigInteger gasLimit;
+
+        Broadcast(String transactionHash, BigInteger gasLimit) {
+            this.transactionHash = transactionHash;
+            this.gasLimit = gasLimit;
+        }
+    }
+
+    /**
+     * Handle for a pipelined transaction: the hash is known once broadcast,
+     * the receipt once it is mined
+     */
+    public static class Submission {
+        private final CompletableFuture<String> transactionHash;
+        private final CompletableFuture<TransactionReceipt> receipt;
+
+        Submission(CompletableFuture<String> transactionHash, CompletableFuture<TransactionReceipt> receipt) {
+            this.transactionHash = transactionHash;
+            this.receipt = receipt;
+        }
+
+        public CompletableFuture<String> getTransactionHash() {
+            return transactionHash;
+        }
+
+        public CompletableFuture<TransactionReceipt> getReceipt() {
+            return receipt;
+        }
+    }
+}
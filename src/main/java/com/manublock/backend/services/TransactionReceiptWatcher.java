@@ -0,0 +1,174 @@
+package com.manublock.backend.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.response.TransactionReceiptProcessor;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single receipt watcher shared by every in-flight transaction.
+ * Wakes once per new block and fetches the receipts of all outstanding hashes
+ * in JSON-RPC batch requests, instead of each transaction polling on its own.
+ */
+@Service
+public class TransactionReceiptWatcher {
+    private static final Logger LOGGER = Logger.getLogger(TransactionReceiptWatcher.class.getName());
+
+    private final Web3j web3j;
+    private final long blockPollIntervalMs;
+    private final int maxBatchSize;
+    private final int maxWaitBlocks;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final Map<String, WatchedTransaction> watched = new ConcurrentHashMap<>();
+    private BigInteger lastCheckedBlock = BigInteger.ZERO;
+
+    @Autowired
+    public TransactionReceiptWatcher(
+            Web3j web3j,
+            @Value("${blockchain.receipts.block-poll-interval-ms:3000}") long blockPollIntervalMs,
+            @Value("${blockchain.receipts.batch-size:100}") int maxBatchSize,
+            @Value("${blockchain.receipts.max-wait-blocks:50}") int maxWaitBlocks) {
+        this.web3j = web3j;
+        this.blockPollIntervalMs = blockPollIntervalMs;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitBlocks = maxWaitBlocks;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::pollForNewBlock,
+                blockPollIntervalMs, blockPollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a transaction hash with the watcher
+     * @return future completed with the receipt once it is mined, whatever its status
+     */
+    public CompletableFuture<TransactionReceipt> watch(String txHash) {
+        return watched.computeIfAbsent(txHash, hash -> new WatchedTransaction()).future;
+    }
+
+    /**
+     * Number of transactions still waiting for a receipt
+     */
+    public int getWatchedCount() {
+        return watched.size();
+    }
+
+    /**
+     * Adapts the watcher to web3j's receipt processor contract, for code paths that
+     * still go through the generated contract wrapper's blocking send()
+     */
+    public TransactionReceiptProcessor asReceiptProcessor(long timeoutMs) {
+        return new TransactionReceiptProcessor(web3j) {
+            @Override
+            public TransactionReceipt waitForTransactionReceipt(String transactionHash)
+                    throws IOException, TransactionException {
+                try {
+                    return watch(transactionHash).get(timeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    throw new TransactionException("Transaction receipt was not generated after " +
+                            timeoutMs + "ms for transaction: " + transactionHash, transactionHash);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TransactionException(e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof TransactionException txException) {
+                        throw txException;
+                    }
+                    throw new IOException(e.getCause());
+                }
+            }
+        };
+    }
+
+    private void pollForNewBlock() {
+        if (watched.isEmpty()) {
+            return;
+        }
+
+        try {
+            BigInteger head = web3j.ethBlockNumber().send().getBlockNumber();
+            if (head.compareTo(lastCheckedBlock) <= 0) {
+                return;
+            }
+            lastCheckedBlock = head;
+            checkReceipts(head);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Receipt watcher poll failed", e);
+        }
+    }
+
+    private void checkReceipts(BigInteger head) throws IOException {
+        List<String> hashes = new ArrayList<>(watched.keySet());
+
+        for (int start = 0; start < hashes.size(); start += maxBatchSize) {
+            List<String> chunk = hashes.subList(start, Math.min(start + maxBatchSize, hashes.size()));
+
+            BatchRequest batch = web3j.newBatch();
+            Map<Long, String> hashByRequestId = new HashMap<>();
+            for (String hash : chunk) {
+                var request = web3j.ethGetTransactionReceipt(hash);
+                hashByRequestId.put(request.getId(), hash);
+                batch.add(request);
+            }
+
+            for (Response<?> response : batch.send().getResponses()) {
+                String hash = hashByRequestId.get(response.getId());
+                WatchedTransaction pending = hash != null ? watched.get(hash) : null;
+                if (pending == null || response.hasError()) {
+                    continue;
+                }
+
+                if (pending.firstBlock == null) {
+                    pending.firstBlock = head;
+                }
+
+                var receipt = ((EthGetTransactionReceipt) response).getTransactionReceipt();
+                if (receipt.isPresent()) {
+                    watched.remove(hash);
+                    pending.future.complete(receipt.get());
+                } else if (head.subtract(pending.firstBlock).intValue() >= maxWaitBlocks) {
+                    watched.remove(hash);
+                    pending.future.completeExceptionally(new TransactionException(
+                            "No transaction receipt for " + hash + " after " + maxWaitBlocks + " blocks", hash));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class WatchedTransaction {
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        private BigInteger firstBlock;
+    }
+}
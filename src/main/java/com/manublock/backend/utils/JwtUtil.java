@@ -40,6 +40,7 @@ public class JwtUtil {
     }
 
     public boolean validateToken(String token, String email) {
-        return email.equals(extractEmail(token)) && !extractClaims(token).getExpiration().before(new Date());
+        Claims claims = extractClaims(token);
+        return email.equals(claims.getSubject()) && !claims.getExpiration().before(new Date());
     }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.manublock.backend.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemLineageIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<ItemLineageIndex> opened = new ArrayList<>();
+
+    @BeforeEach
+    void clearOpened() {
+        opened.clear();
+    }
+
+    @AfterEach
+    void closeOpened() {
+        opened.forEach(ItemLineageIndex::close);
+    }
+
+    @Test
+    void csrBuildDropsDuplicateLinks() {
+        ItemLineageIndex.Csr csr = ItemLineageIndex.Csr.build(
+                list(2, 2, 3, 3, 3), list(1, 1, 1, 2, 2));
+
+        assertArrayEquals(new long[]{1, 2, 3}, csr.nodeIds);
+        assertArrayEquals(new long[]{0, 0, 1, 3}, csr.parentOffsets);
+        assertArrayEquals(new long[]{1, 1, 2}, csr.parentTargets);
+        assertArrayEquals(new long[]{0, 2, 3, 3}, csr.childOffsets);
+        assertArrayEquals(new long[]{2, 3, 3}, csr.childTargets);
+    }
+
+    @Test
+    void traverseStopsAtDepthAndLimit() throws IOException {
+        // 1 <- 2 <- 3 <- 4, and 5 also derived from 1
+        ItemLineageIndex index = build(list(2, 3, 4, 5), list(1, 2, 3, 1));
+
+        assertArrayEquals(new long[]{3, 2}, index.ancestors(4, 2, 100));
+        assertArrayEquals(new long[]{3, 2, 1}, index.ancestors(4, 10, 100));
+        assertArrayEquals(new long[]{2, 5, 3, 4}, index.descendants(1, 10, 100));
+        assertArrayEquals(new long[]{2, 5}, index.descendants(1, 10, 2));
+    }
+
+    @Test
+    void traverseVisitsEachItemOnceInCycles() throws IOException {
+        ItemLineageIndex index = build(list(1, 2, 3), list(2, 3, 1));
+
+        assertArrayEquals(new long[]{2, 3}, index.ancestors(1, 10, 100));
+        assertArrayEquals(new long[]{3, 2}, index.descendants(1, 10, 100));
+    }
+
+    @Test
+    void addedLinksAreTraversedAndDeduplicated() throws IOException {
+        ItemLineageIndex index = build(list(2), list(1));
+
+        index.addLinks(3, List.of(2L, 1L));
+        index.addLinks(2, List.of(1L));
+
+        assertArrayEquals(new long[]{1, 2}, index.ancestors(3, 10, 100));
+        assertArrayEquals(new long[]{2, 3}, index.descendants(1, 10, 100));
+        ItemLineageIndex.Loaded loaded = reopen().loadFromFiles();
+        assertNotNull(loaded);
+        assertEquals(3, loaded.edgeCount());
+    }
+
+    @Test
+    void loadReplaysDeltaAndIgnoresTornRecord() throws IOException {
+        ItemLineageIndex index = build(list(2), list(1));
+        index.addLinks(3, List.of(2L));
+        index.addLinks(4, List.of(3L));
+        index.close();
+
+        // A crash in the middle of the last record leaves half of it behind
+        Path delta = directory.resolve(ItemLineageIndex.DELTA_FILE);
+        try (FileChannel channel = FileChannel.open(delta, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+
+        ItemLineageIndex reopened = reopen();
+        ItemLineageIndex.Loaded loaded = reopened.loadFromFiles();
+        assertNotNull(loaded);
+        assertEquals(2, loaded.edgeCount());
+        reopened.installLoaded(loaded);
+
+        assertArrayEquals(new long[]{2, 1}, reopened.ancestors(3, 10, 100));
+        assertArrayEquals(new long[0], reopened.ancestors(4, 10, 100));
+
+        // Appends after the torn record stay aligned
+        reopened.addLinks(4, List.of(3L));
+        reopened.close();
+        ItemLineageIndex.Loaded again = reopen().loadFromFiles();
+        assertNotNull(again);
+        assertEquals(3, again.edgeCount());
+    }
+
+    @Test
+    void overlayMergesIntoNewBase() throws Exception {
+        ItemLineageIndex index = open(4);
+        index.build(list(2), list(1));
+
+        for (long child = 3; child <= 10; child++) {
+            index.addLinks(child, List.of(child - 1));
+        }
+        awaitMerge(index);
+
+        assertEquals(9, index.ancestors(10, 20, 100).length);
+        ItemLineageIndex.Loaded loaded = reopen().loadFromFiles();
+        assertNotNull(loaded);
+        assertEquals(9, loaded.edgeCount());
+    }
+
+    @Test
+    void traversalGrowsVisitedSetAndQueue() {
+        ItemLineageIndex.Traversal traversal = new ItemLineageIndex.Traversal();
+        traversal.reset(5000);
+        for (long id = 0; id < 5000; id++) {
+            traversal.offer(id * 31);
+        }
+        assertEquals(5000, traversal.count);
+        assertTrue(traversal.isFull());
+        for (long id = 0; id < 5000; id++) {
+            assertFalse(traversal.visit(id * 31));
+        }
+        assertTrue(traversal.visit(1));
+
+        // A new traversal forgets the previous one
+        traversal.reset(10);
+        assertTrue(traversal.visit(31));
+        assertEquals(0, traversal.count);
+    }
+
+    private ItemLineageIndex build(ItemLineageIndex.LongList children, ItemLineageIndex.LongList parents)
+            throws IOException {
+        ItemLineageIndex index = open(1000);
+        index.build(children, parents);
+        return index;
+    }
+
+    private ItemLineageIndex reopen() {
+        return open(1000);
+    }
+
+    private ItemLineageIndex open(int mergeThreshold) {
+        // Never connects: tests only use the file-backed paths
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        ItemLineageIndex index = new ItemLineageIndex(new JdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource), directory.toString(), mergeThreshold, true);
+        opened.add(index);
+        return index;
+    }
+
+    private static void awaitMerge(ItemLineageIndex index) throws InterruptedException {
+        for (int i = 0; i < 500 && index.isMerging(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(index.isMerging());
+    }
+
+    private static ItemLineageIndex.LongList list(long... values) {
+        ItemLineageIndex.LongList list = new ItemLineageIndex.LongList();
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}